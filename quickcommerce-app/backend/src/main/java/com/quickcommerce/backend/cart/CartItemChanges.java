@@ -0,0 +1,51 @@
+package com.quickcommerce.backend.cart;
+
+import com.quickcommerce.backend.dto.UpdateCartItemsRequest.Operation;
+import com.quickcommerce.backend.exception.BadRequestException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds a list of cart line operations into at most one per product, with the same result
+ * as applying them one by one: a burst of stepper clicks on one line becomes a single change.
+ */
+public final class CartItemChanges {
+
+    private CartItemChanges() {
+    }
+
+    /**
+     * @return per product, in order of first mention: ADD with a quantity to add, SET with
+     *         the final quantity (at least 1), or REMOVE
+     * @throws BadRequestException if there are too many operations or one lacks its quantity
+     */
+    public static Map<Long, Operation> coalesce(List<Operation> operations, int maxOperations) {
+        if (operations.size() > maxOperations) {
+            throw new BadRequestException("At most " + maxOperations + " cart operations can be sent at once");
+        }
+        Map<Long, Operation> changes = new LinkedHashMap<>();
+        for (Operation operation : operations) {
+            Long productId = operation.getProductId();
+            Integer quantity = operation.getQuantity();
+            if (operation.getOp() == Operation.Type.REMOVE || (operation.getOp() == Operation.Type.SET && quantity != null && quantity == 0)) {
+                changes.put(productId, new Operation(Operation.Type.REMOVE, productId, null));
+                continue;
+            }
+            if (quantity == null || quantity < 1) {
+                throw new BadRequestException(operation.getOp() + " of product " + productId + " needs a quantity of at least 1");
+            }
+            Operation previous = changes.get(productId);
+            if (operation.getOp() == Operation.Type.SET || previous == null) {
+                changes.put(productId, new Operation(operation.getOp(), productId, quantity));
+            } else if (previous.getOp() == Operation.Type.REMOVE) {
+                // Removed, then added again: the line ends up with just the new quantity
+                changes.put(productId, new Operation(Operation.Type.SET, productId, quantity));
+            } else {
+                changes.put(productId, new Operation(previous.getOp(), productId, previous.getQuantity() + quantity));
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,33 @@
+package com.quickcommerce.backend.cart;
+
+import com.quickcommerce.backend.model.User;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Identifies a cart: the user's for signed-in users, the session's for guests.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class CartKey {
+
+    private final Long userId;
+    private final String sessionId;
+
+    private CartKey(Long userId, String sessionId) {
+        this.userId = userId;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * @return the key of the user's cart if signed in, of the session's otherwise; null without either
+     */
+    public static CartKey of(User user, String sessionId) {
+        if (user != null) {
+            return new CartKey(user.getId(), null);
+        }
+        return sessionId != null ? new CartKey(null, sessionId) : null;
+    }
+}
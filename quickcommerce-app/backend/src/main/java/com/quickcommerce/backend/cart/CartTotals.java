@@ -0,0 +1,40 @@
+package com.quickcommerce.backend.cart;
+
+import java.math.BigDecimal;
+
+/**
+ * Cart amounts in minor units (cents). Prices have two decimals (the columns are
+ * {@code DECIMAL(10, 2)}), so a line's subtotal and a cart's total are exact in a {@code long}
+ * and convert back to the same {@link BigDecimal} that multiplying and adding the prices gives.
+ */
+public final class CartTotals {
+
+    private static final int SCALE = 2;
+
+    private CartTotals() {
+    }
+
+    /**
+     * @throws ArithmeticException if the price has more than two decimals
+     */
+    public static long toMinor(BigDecimal price) {
+        return price.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * {@code price * quantity} in minor units.
+     *
+     * @throws ArithmeticException on overflow, or if the price has more than two decimals
+     */
+    public static long lineMinor(BigDecimal price, int quantity) {
+        return Math.multiplyExact(toMinor(price), quantity);
+    }
+
+    /**
+     * The amount as a two-decimal {@link BigDecimal}, except that 0 (an empty cart) is
+     * {@link BigDecimal#ZERO}, which is what summing no lines has always returned.
+     */
+    public static BigDecimal toDecimal(long minor) {
+        return minor == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(minor, SCALE);
+    }
+}
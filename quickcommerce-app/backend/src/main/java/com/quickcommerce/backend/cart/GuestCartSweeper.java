@@ -0,0 +1,136 @@
+package com.quickcommerce.backend.cart;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes guest carts nobody touched for {@code app.cart.guest-sweep.ttl-days}; their lines
+ * go with them by cascade. Signed-in users' carts are never swept.
+ *
+ * Works through the backlog in small batches, each one statement committed on its own,
+ * oldest carts first (see {@code idx_carts_guest_updated_at}). Carts locked by a request at
+ * that moment are skipped rather than waited for. To stay out of the way of checkout
+ * traffic it pauses between batches, stops after a bounded number of batches per run, and
+ * backs off entirely while requests are waiting for a database connection.
+ *
+ * Runs on its own thread rather than the shared {@code @Scheduled} one, and pauses by
+ * scheduling the next batch instead of sleeping. The cutoff is computed by the database, on
+ * the same clock that sets {@code updated_at}.
+ */
+@Component
+@Slf4j
+public class GuestCartSweeper {
+
+    private static final String DELETE_IDLE_SQL =
+            "DELETE FROM carts WHERE id IN (" +
+            "  SELECT id FROM carts WHERE user_id IS NULL AND updated_at < LOCALTIMESTAMP - make_interval(days => ?) " +
+            "  ORDER BY updated_at LIMIT ? FOR UPDATE SKIP LOCKED" +
+            ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final int ttlDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long intervalMs;
+    private final long pauseMs;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "guest-cart-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter deleted;
+    private final Counter backedOff;
+    private final Timer batchTimer;
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+
+    public GuestCartSweeper(JdbcTemplate jdbcTemplate,
+                            DataSource dataSource,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.cart.guest-sweep.enabled:true}") boolean enabled,
+                            @Value("${app.cart.guest-sweep.ttl-days:30}") int ttlDays,
+                            @Value("${app.cart.guest-sweep.interval-ms:600000}") long intervalMs,
+                            @Value("${app.cart.guest-sweep.batch-size:500}") int batchSize,
+                            @Value("${app.cart.guest-sweep.max-batches-per-run:100}") int maxBatchesPerRun,
+                            @Value("${app.cart.guest-sweep.pause-ms:200}") long pauseMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.ttlDays = ttlDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.intervalMs = intervalMs;
+        this.pauseMs = pauseMs;
+
+        this.deleted = Counter.builder("cart.guest_sweep.deleted")
+                .description("Idle guest carts deleted")
+                .register(meterRegistry);
+        this.backedOff = Counter.builder("cart.guest_sweep.backed_off")
+                .description("Guest cart sweeps cut short because requests were waiting for a connection")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.guest_sweep.batch")
+                .description("Time to delete one batch of idle guest carts")
+                .register(meterRegistry);
+        meterRegistry.gauge("cart.guest_sweep.last_run.deleted", lastRunDeleted);
+
+        if (enabled) {
+            sweeper.schedule(() -> sweepBatch(0, 0), intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // One batch of a run; schedules the next batch, or the next run once this one is done
+    private void sweepBatch(int batch, long total) {
+        boolean more = false;
+        try {
+            if (connectionsContended()) {
+                backedOff.increment();
+                log.debug("Guest cart sweep backing off, requests are waiting for connections");
+            } else {
+                int count = batchTimer.record(() -> jdbcTemplate.update(DELETE_IDLE_SQL, ttlDays, batchSize));
+                deleted.increment(count);
+                total += count;
+                more = count == batchSize && batch + 1 < maxBatchesPerRun;
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to sweep idle guest carts", e);
+        }
+
+        if (more) {
+            long sweptSoFar = total;
+            sweeper.schedule(() -> sweepBatch(batch + 1, sweptSoFar), pauseMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        lastRunDeleted.set(total);
+        if (total > 0) {
+            log.info("Deleted {} guest carts idle for more than {} days", total, ttlDays);
+        }
+        sweeper.schedule(() -> sweepBatch(0, 0), intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean connectionsContended() {
+        if (dataSource instanceof HikariDataSource hikari) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool != null && pool.getThreadsAwaitingConnection() > 0;
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,158 @@
+package com.quickcommerce.backend.cart;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Database side of the write-behind cart store: loads a cart with one query, and writes
+ * any number of carts in one transaction of batched statements.
+ *
+ * Writes run in their own transaction, so a flush forced from inside another transaction
+ * (checkout) stays written even if that one rolls back.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory")
+public class JdbcCartStore {
+
+    private static final String LOAD_SQL =
+            "SELECT c.id, c.updated_at, ci.id, ci.product_id, ci.quantity, ci.price, p.name, p.image_url " +
+            "FROM (SELECT id, updated_at FROM carts WHERE %s = ? ORDER BY id LIMIT 1) c " +
+            "LEFT JOIN cart_items ci ON ci.cart_id = c.id " +
+            "LEFT JOIN products p ON p.id = ci.product_id " +
+            "ORDER BY ci.id";
+
+    // ON CONFLICT targets of the one-cart-per-owner indexes (V23)
+    private static final String USER_CART = "(user_id) WHERE user_id IS NOT NULL";
+    private static final String GUEST_CART = "(session_id) WHERE user_id IS NULL";
+
+    // A row created meanwhile by someone else is taken over
+    private static final String INSERT_CART_SQL =
+            "INSERT INTO carts (user_id, session_id) VALUES (?, ?) " +
+            "ON CONFLICT %s DO UPDATE SET updated_at = CURRENT_TIMESTAMP RETURNING id";
+
+    private static final String TOUCH_CART_SQL =
+            "UPDATE carts SET updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String DELETE_REMOVED_ITEMS_SQL =
+            "DELETE FROM cart_items WHERE cart_id = ? AND product_id <> ALL (?)";
+
+    private static final String UPSERT_ITEM_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity, price) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE " +
+            "SET quantity = EXCLUDED.quantity, price = EXCLUDED.price " +
+            "WHERE (cart_items.quantity, cart_items.price) IS DISTINCT FROM (EXCLUDED.quantity, EXCLUDED.price)";
+
+    private static final String DELETE_CART_SQL = "DELETE FROM carts WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+
+    public JdbcCartStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * The stored cart for {@code key}, or a new empty one that has no row yet.
+     */
+    public MemoryCart load(CartKey key) {
+        String column = key.getUserId() != null ? "user_id" : "session_id";
+        Object value = key.getUserId() != null ? key.getUserId() : key.getSessionId();
+        List<MemoryCart.Line> lines = new ArrayList<>();
+        Object[] cart = new Object[2];
+        jdbcTemplate.query(String.format(LOAD_SQL, column), rs -> {
+            cart[0] = rs.getLong(1);
+            Timestamp updatedAt = rs.getTimestamp(2);
+            cart[1] = updatedAt != null ? updatedAt.toLocalDateTime() : null;
+            // No cart_items row: the cart has no lines
+            if (rs.getObject(3) != null) {
+                lines.add(new MemoryCart.Line(rs.getLong(4), rs.getString(7), rs.getString(8),
+                        rs.getBigDecimal(6), rs.getInt(5)));
+            }
+        }, value);
+        return new MemoryCart(key, (Long) cart[0], lines, (LocalDateTime) cart[1]);
+    }
+
+    /**
+     * Writes the given cart states: new carts get a row, lines are upserted and removed lines
+     * deleted, and deleted carts lose their row. New carts without lines are left unwritten,
+     * and a cart whose row disappeared meanwhile (cleaned up as abandoned) gets a new one.
+     *
+     * @return the row id of every cart that has one after the write, by key
+     */
+    public Map<CartKey, Long> write(Map<CartKey, MemoryCart.State> states) {
+        return writeTransaction.execute(status -> {
+            List<Object[]> deleted = new ArrayList<>();
+            List<CartKey> existing = new ArrayList<>();
+            List<Object[]> existingIds = new ArrayList<>();
+            List<CartKey> created = new ArrayList<>();
+            states.forEach((key, state) -> {
+                if (state.isDeleted()) {
+                    if (state.getId() != null) {
+                        deleted.add(new Object[]{state.getId()});
+                    }
+                } else if (state.getId() != null) {
+                    existing.add(key);
+                    existingIds.add(new Object[]{state.getId()});
+                } else if (!state.getLines().isEmpty()) {
+                    created.add(key);
+                }
+            });
+
+            Map<CartKey, Long> ids = new HashMap<>();
+            if (!existingIds.isEmpty()) {
+                int[] updated = jdbcTemplate.batchUpdate(TOUCH_CART_SQL, existingIds);
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        created.add(existing.get(i));
+                    } else {
+                        ids.put(existing.get(i), (Long) existingIds.get(i)[0]);
+                    }
+                }
+            }
+            for (CartKey key : created) {
+                String owner = key.getUserId() != null ? USER_CART : GUEST_CART;
+                ids.put(key, jdbcTemplate.queryForObject(String.format(INSERT_CART_SQL, owner),
+                        Long.class, key.getUserId(), key.getSessionId()));
+            }
+
+            List<Map.Entry<Long, Long[]>> kept = new ArrayList<>(ids.size());
+            List<Object[]> items = new ArrayList<>();
+            ids.forEach((key, id) -> {
+                List<MemoryCart.Line> lines = states.get(key).getLines();
+                Long[] productIds = new Long[lines.size()];
+                for (int i = 0; i < productIds.length; i++) {
+                    MemoryCart.Line line = lines.get(i);
+                    productIds[i] = line.getProductId();
+                    items.add(new Object[]{id, line.getProductId(), line.getQuantity(), line.getPrice()});
+                }
+                kept.add(Map.entry(id, productIds));
+            });
+            if (!kept.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_REMOVED_ITEMS_SQL, kept, kept.size(), (ps, entry) -> {
+                    ps.setLong(1, entry.getKey());
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", entry.getValue()));
+                });
+            }
+            if (!items.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_ITEM_SQL, items);
+            }
+            if (!deleted.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_CART_SQL, deleted);
+            }
+            return ids;
+        });
+    }
+}
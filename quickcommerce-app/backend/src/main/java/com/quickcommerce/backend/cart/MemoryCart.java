@@ -0,0 +1,156 @@
+package com.quickcommerce.backend.cart;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cart held by the write-behind cart store. Not thread-safe: callers lock the instance.
+ *
+ * {@code version} counts changes, {@code flushedVersion} is the one last written to the
+ * database; the cart is dirty while they differ. A cart marked deleted (merged into a
+ * user's cart) has its row deleted on the next flush.
+ *
+ * Lines are keyed by product. The total and item count are kept up to date as lines change,
+ * which is why quantities are only changed through {@link #setQuantity}.
+ */
+@Getter
+public class MemoryCart {
+
+    private final CartKey key;
+    // Row id, null until the cart is first written
+    @Setter
+    private Long id;
+    private final Map<Long, Line> lines = new LinkedHashMap<>();
+    // Sum of the line subtotals in minor units, and of the quantities
+    private long totalMinor;
+    private int itemCount;
+    private LocalDateTime updatedAt;
+    private boolean deleted;
+    private long version;
+    @Setter
+    private long flushedVersion;
+    // Set when dropped from the store; a caller still holding it has to look the cart up again
+    @Setter
+    private boolean evicted;
+    @Setter
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    public MemoryCart(CartKey key, Long id, Collection<Line> lines, LocalDateTime updatedAt) {
+        this.key = key;
+        this.id = id;
+        lines.forEach(this::putLine);
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isDirty() {
+        return version != flushedVersion;
+    }
+
+    public Line getLine(Long productId) {
+        return lines.get(productId);
+    }
+
+    public void putLine(Line line) {
+        Line replaced = lines.put(line.getProductId(), line);
+        if (replaced != null) {
+            account(replaced, -1);
+        }
+        account(line, 1);
+    }
+
+    public void setQuantity(Line line, int quantity) {
+        account(line, -1);
+        line.setQuantity(quantity);
+        account(line, 1);
+    }
+
+    public void removeLine(Long productId) {
+        Line removed = lines.remove(productId);
+        if (removed != null) {
+            account(removed, -1);
+        }
+    }
+
+    public void clear() {
+        lines.clear();
+        totalMinor = 0;
+        itemCount = 0;
+    }
+
+    public void markDeleted() {
+        clear();
+        deleted = true;
+    }
+
+    private void account(Line line, int sign) {
+        totalMinor += sign * CartTotals.lineMinor(line.getPrice(), line.getQuantity());
+        itemCount += sign * line.getQuantity();
+    }
+
+    /**
+     * Records a change. A deleted cart that changes again is a live, empty cart.
+     */
+    public void touch() {
+        if (deleted && !lines.isEmpty()) {
+            deleted = false;
+        }
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    public State capture() {
+        List<Line> copy = new ArrayList<>(lines.size());
+        lines.values().forEach(line -> copy.add(line.copy()));
+        return new State(id, copy, deleted, version);
+    }
+
+    /**
+     * Puts the lines back as they were in {@code state}, as a new change.
+     */
+    public void restore(State state) {
+        clear();
+        state.getLines().forEach(line -> putLine(line.copy()));
+        deleted = state.isDeleted();
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private String productName;
+        private String productImage;
+        private BigDecimal price;
+        // Changed through MemoryCart#setQuantity, which keeps the cart's totals
+        @Setter(AccessLevel.PACKAGE)
+        private int quantity;
+
+        public Line copy() {
+            return new Line(productId, productName, productImage, price, quantity);
+        }
+    }
+
+    /**
+     * Immutable copy of a cart's contents at one version, for writing it out or undoing changes.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class State {
+        private final Long id;
+        private final List<Line> lines;
+        private final boolean deleted;
+        private final long version;
+    }
+}
@@ -0,0 +1,33 @@
+package com.quickcommerce.backend.catalog;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published whenever catalog data changes. Listeners that keep in-memory views of
+ * the catalog (snapshot, search index, etc.) use it to refresh themselves.
+ *
+ * An event either names the products that changed, or asks for a full reload when
+ * the change can't be narrowed down (e.g. categories changed, bulk writes).
+ */
+@Getter
+public class CatalogChangedEvent {
+
+    private final Set<Long> productIds;
+    private final boolean fullReload;
+
+    private CatalogChangedEvent(Set<Long> productIds, boolean fullReload) {
+        this.productIds = productIds;
+        this.fullReload = fullReload;
+    }
+
+    public static CatalogChangedEvent forProducts(Collection<Long> productIds) {
+        return new CatalogChangedEvent(Set.copyOf(productIds), false);
+    }
+
+    public static CatalogChangedEvent fullReload() {
+        return new CatalogChangedEvent(Set.of(), true);
+    }
+}
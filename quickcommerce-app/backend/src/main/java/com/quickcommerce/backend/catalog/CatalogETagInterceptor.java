@@ -0,0 +1,152 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.config.CatalogHttpCacheProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Conditional GET for catalog endpoints, keyed on the catalog snapshot.
+ *
+ * Every catalog change produces a new snapshot version, and every snapshot swap, stock-only
+ * ones included, a new revision. Product responses show stock, so they're tagged with the
+ * revision; categories and suggestions don't, and keep the version, which stock leaves alone.
+ * A matching If-None-Match is answered with 304 before the controller runs: no database
+ * access, no serialization. The tag is scoped to this process start, since versions and
+ * revisions restart from zero after a restart.
+ *
+ * The tag is taken before the controller reads the snapshot, so it's never newer than the
+ * body it goes out with. ETag and Cache-Control are only added to successful responses, as the
+ * body is written; {@code If-None-Match: *} is answered there too, once the controller has
+ * found the resource, so a missing product still gets its 404.
+ *
+ * Until the first snapshot is built no ETag is sent and requests go through as usual.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class CatalogETagInterceptor implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    private static final String ETAG_ATTRIBUTE = CatalogETagInterceptor.class.getName() + ".etag";
+    private static final String[] STOCK_FREE_PATTERNS = {"/api/categories/**", "/api/products/suggestions"};
+
+    private final CatalogSnapshotCache catalogSnapshotCache;
+    private final CatalogHttpCacheProperties properties;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        boolean readRequest = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        if (!readRequest || !properties.isEnabled()) {
+            return true;
+        }
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotCache.getSnapshot();
+        if (snapshot.isEmpty()) {
+            return true;
+        }
+
+        String etag = stockFree(request.getRequestURI())
+                ? "\"" + epoch + "-" + snapshot.get().getVersion() + "\""
+                : "\"" + epoch + "-r" + snapshot.get().getRevision() + "\"";
+        if (matches(request.getHeaders(HttpHeaders.IF_NONE_MATCH), etag)) {
+            setCacheHeaders(request, response, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return body;
+        }
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        HttpServletResponse httpResponse = servletResponse.getServletResponse();
+        // Only requests preHandle tagged, and only once they've succeeded
+        if (!(httpRequest.getAttribute(ETAG_ATTRIBUTE) instanceof String etag) || httpResponse.getStatus() / 100 != 2) {
+            return body;
+        }
+        setCacheHeaders(httpRequest, httpResponse, etag);
+        if (hasWildcard(httpRequest.getHeaders(HttpHeaders.IF_NONE_MATCH))) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+        return body;
+    }
+
+    private void setCacheHeaders(HttpServletRequest request, HttpServletResponse response, String etag) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControlFor(request.getRequestURI()));
+    }
+
+    private static boolean stockFree(String path) {
+        for (String pattern : STOCK_FREE_PATTERNS) {
+            if (PATH_MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String cacheControlFor(String path) {
+        Comparator<String> mostSpecificFirst = PATH_MATCHER.getPatternComparator(path);
+        return properties.getCacheControl().entrySet().stream()
+                .filter(entry -> PATH_MATCHER.match(entry.getKey(), path))
+                .min((a, b) -> mostSpecificFirst.compare(a.getKey(), b.getKey()))
+                .map(Map.Entry::getValue)
+                .orElse(properties.getDefaultCacheControl());
+    }
+
+    // If-None-Match uses weak comparison (RFC 9110 13.1.2), so a W/ prefix is ignored
+    private static boolean matches(Enumeration<String> ifNoneMatch, String etag) {
+        while (ifNoneMatch.hasMoreElements()) {
+            for (String candidate : ifNoneMatch.nextElement().split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasWildcard(Enumeration<String> ifNoneMatch) {
+        while (ifNoneMatch.hasMoreElements()) {
+            if (ifNoneMatch.nextElement().trim().equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.model.Product;
+
+import java.util.Collection;
+
+/**
+ * An in-memory structure derived from the catalog (search index, suggestions, ...).
+ *
+ * Indexers are fed by {@link CatalogSnapshotCache} from the same reads that build the
+ * snapshot, on its rebuild thread and inside its read-only transaction; any extra reads
+ * an indexer needs see the same data. Calls are never concurrent with each other.
+ */
+public interface CatalogIndexer {
+
+    /**
+     * Replaces the whole index with the given active products.
+     */
+    void reload(Collection<Product> activeProducts);
+
+    /**
+     * Applies changes to individual products. Every id in {@code touchedIds} must be
+     * dropped from the index; products in {@code changedProducts} that are still active
+     * are then indexed again.
+     */
+    void update(Collection<Product> changedProducts, Collection<Long> touchedIds);
+}
@@ -0,0 +1,479 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.CategoryDTO;
+import com.quickcommerce.backend.dto.CursorPageDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Immutable, versioned view of the active catalog.
+ *
+ * Active products are held in pre-sorted arrays for every {@link SortKey}, both for the
+ * whole catalog and per category, and looked up by id with a binary search over the id
+ * view. Pages are cut straight from those arrays, so serving a listing never touches the
+ * database. The category list, with active-product counts, is likewise built once per snapshot.
+ *
+ * {@link #withChanges} patches a copy of only the arrays the changed products are in, with
+ * binary-search removes and inserts; everything else is shared with the previous snapshot.
+ * {@link #withStock} swaps in stock levels without moving anything, and keeps the version:
+ * {@link #getVersion()} tracks what listings contain and how they sort, {@link #getRevision()}
+ * every change including stock.
+ *
+ * The DTOs handed out are shared between requests and must be treated as read-only.
+ */
+public final class CatalogSnapshot {
+
+    /**
+     * Sort keys the snapshot keeps pre-sorted views for. These are the properties
+     * ProductController lets clients sort listings by; anything else falls back to the DB.
+     */
+    public enum SortKey {
+        ID("id", "id", Comparator.comparing(ProductDTO::getId)),
+        NAME("name", "nameKey", Comparator.comparing(ProductDTO::getName, NameKey.ORDER)
+                .thenComparing(ProductDTO::getId)),
+        PRICE("price", "price", Comparator.comparing(ProductDTO::getPrice)
+                .thenComparing(ProductDTO::getId));
+
+        private final String property;
+        private final String dbProperty;
+        private final Comparator<ProductDTO> comparator;
+
+        SortKey(String property, String dbProperty, Comparator<ProductDTO> comparator) {
+            this.property = property;
+            this.dbProperty = dbProperty;
+            this.comparator = comparator;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        /**
+         * The DB equivalent of {@link #getComparator()}: the same key, ties broken by id.
+         */
+        public Sort toDbSort(Sort.Direction direction) {
+            return this == ID ? Sort.by(direction, "id") : Sort.by(direction, dbProperty, "id");
+        }
+
+        public Comparator<ProductDTO> getComparator() {
+            return comparator;
+        }
+
+        public static Optional<SortKey> fromProperty(String property) {
+            for (SortKey key : values()) {
+                if (key.property.equals(property)) {
+                    return Optional.of(key);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static final ProductDTO[] NO_PRODUCTS = new ProductDTO[0];
+    private static final Map<SortKey, ProductDTO[]> EMPTY_VIEWS = sortedViews(List.of());
+
+    private final long version;
+    private final long revision;
+    private final long[] ids; // ascending, parallel to the ID view
+    private final Map<Long, CategoryDTO> categoriesById;
+    private final Map<SortKey, ProductDTO[]> allProducts;
+    private final Map<Long, Map<SortKey, ProductDTO[]>> productsByCategory;
+    private final List<CategoryDTO> categoryList;
+
+    private CatalogSnapshot(long version, long revision, long[] ids, Map<SortKey, ProductDTO[]> allProducts,
+                            Map<Long, Map<SortKey, ProductDTO[]>> productsByCategory, Map<Long, CategoryDTO> categoriesById) {
+        this.version = version;
+        this.revision = revision;
+        this.ids = ids;
+        this.allProducts = allProducts;
+        this.productsByCategory = Collections.unmodifiableMap(productsByCategory);
+        this.categoriesById = Collections.unmodifiableMap(categoriesById);
+
+        List<CategoryDTO> withCounts = new ArrayList<>(categoriesById.size());
+        for (CategoryDTO category : categoriesById.values()) {
+            Map<SortKey, ProductDTO[]> views = productsByCategory.get(category.getId());
+            withCounts.add(new CategoryDTO(category.getId(), category.getName(), views == null ? 0 : views.get(SortKey.ID).length));
+        }
+        this.categoryList = Collections.unmodifiableList(withCounts);
+    }
+
+    /**
+     * Builds a snapshot from the active products and all categories.
+     */
+    public static CatalogSnapshot build(long version, Collection<ProductDTO> activeProducts, Collection<CategoryDTO> categories) {
+        Map<Long, ProductDTO> productsById = new HashMap<>(activeProducts.size() * 2);
+        for (ProductDTO product : activeProducts) {
+            if (product.isActive()) {
+                productsById.put(product.getId(), product);
+            }
+        }
+        Map<Long, List<ProductDTO>> grouped = new HashMap<>();
+        for (ProductDTO product : productsById.values()) {
+            if (product.getCategory() != null) {
+                grouped.computeIfAbsent(product.getCategory().getId(), id -> new ArrayList<>()).add(product);
+            }
+        }
+        Map<SortKey, ProductDTO[]> allProducts = sortedViews(productsById.values());
+        Map<Long, Map<SortKey, ProductDTO[]>> byCategory = new HashMap<>();
+        grouped.forEach((categoryId, products) -> byCategory.put(categoryId, sortedViews(products)));
+
+        Map<Long, CategoryDTO> categoriesById = new LinkedHashMap<>();
+        for (CategoryDTO category : categories) {
+            categoriesById.put(category.getId(), category);
+        }
+        return new CatalogSnapshot(version, version, idsOf(allProducts.get(SortKey.ID)), allProducts, byCategory, categoriesById);
+    }
+
+    /**
+     * Returns a new snapshot with the given products replaced. Every id in {@code touchedIds}
+     * is dropped first, then re-added from {@code changedProducts} if it is still active, so
+     * deleted and deactivated products disappear.
+     *
+     * Only the views of the whole catalog and of the categories the products move out of or
+     * into are copied, each with O(log n) searches per change and one array copy.
+     */
+    public CatalogSnapshot withChanges(long newVersion, Collection<ProductDTO> changedProducts, Collection<Long> touchedIds) {
+        Map<Long, ProductDTO> added = new LinkedHashMap<>();
+        for (ProductDTO product : changedProducts) {
+            if (product.isActive()) {
+                added.put(product.getId(), product);
+            }
+        }
+        List<ProductDTO> removed = new ArrayList<>();
+        for (Long id : touchedIds) {
+            getProduct(id).ifPresent(removed::add);
+        }
+        for (Long id : added.keySet()) {
+            if (!touchedIds.contains(id)) {
+                getProduct(id).ifPresent(removed::add);
+            }
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return new CatalogSnapshot(newVersion, newVersion, ids, allProducts, productsByCategory, categoriesById);
+        }
+
+        Map<SortKey, ProductDTO[]> all = patchViews(allProducts, removed, added.values());
+        Map<Long, List<ProductDTO>> removedByCategory = groupByCategory(removed);
+        Map<Long, List<ProductDTO>> addedByCategory = groupByCategory(added.values());
+        Set<Long> touchedCategories = new HashSet<>(removedByCategory.keySet());
+        touchedCategories.addAll(addedByCategory.keySet());
+
+        Map<Long, Map<SortKey, ProductDTO[]>> byCategory = new HashMap<>(productsByCategory);
+        for (Long categoryId : touchedCategories) {
+            Map<SortKey, ProductDTO[]> views = byCategory.getOrDefault(categoryId, EMPTY_VIEWS);
+            Map<SortKey, ProductDTO[]> patched = patchViews(views,
+                    removedByCategory.getOrDefault(categoryId, List.of()),
+                    addedByCategory.getOrDefault(categoryId, List.of()));
+            if (patched.get(SortKey.ID).length == 0) {
+                byCategory.remove(categoryId);
+            } else {
+                byCategory.put(categoryId, patched);
+            }
+        }
+        return new CatalogSnapshot(newVersion, newVersion, patchIds(ids, removed, added.values()), all, byCategory, categoriesById);
+    }
+
+    /**
+     * Returns a new snapshot with the stock of the given products replaced, under the same
+     * version. Stock isn't part of any sort key, so every product stays where it is: each array
+     * holding one of them is copied and the copy of its DTO put in the same slot. Products not
+     * in the snapshot (inactive) are ignored.
+     */
+    public CatalogSnapshot withStock(long newRevision, Map<Long, Integer> stockLevels) {
+        List<ProductDTO> before = new ArrayList<>();
+        List<ProductDTO> after = new ArrayList<>();
+        stockLevels.forEach((id, stock) -> getProduct(id).ifPresent(product -> {
+            if (product.getStockQuantity() != stock) {
+                before.add(product);
+                after.add(ProductDtoMapper.withStock(product, stock));
+            }
+        }));
+        if (before.isEmpty()) {
+            return new CatalogSnapshot(version, newRevision, ids, allProducts, productsByCategory, categoriesById);
+        }
+
+        Map<SortKey, ProductDTO[]> all = replaceInViews(allProducts, before, after);
+        Map<Long, Map<SortKey, ProductDTO[]>> byCategory = new HashMap<>(productsByCategory);
+        Map<Long, List<Integer>> changedByCategory = new HashMap<>();
+        for (int i = 0; i < before.size(); i++) {
+            if (before.get(i).getCategory() != null) {
+                changedByCategory.computeIfAbsent(before.get(i).getCategory().getId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+        changedByCategory.forEach((categoryId, indexes) -> byCategory.put(categoryId, replaceInViews(
+                byCategory.get(categoryId),
+                indexes.stream().map(before::get).toList(),
+                indexes.stream().map(after::get).toList())));
+        return new CatalogSnapshot(version, newRevision, ids, all, byCategory, categoriesById);
+    }
+
+    /**
+     * Cuts a page of active products, optionally restricted to a category.
+     *
+     * @return the page, or empty if the request can't be answered from the snapshot
+     *         (unknown category, or a sort the snapshot has no view for)
+     */
+    public Optional<Page<ProductDTO>> findPage(Long categoryId, Pageable pageable) {
+        if (categoryId != null && !categoriesById.containsKey(categoryId)) {
+            return Optional.empty();
+        }
+
+        SortKey sortKey = SortKey.ID;
+        boolean descending = false;
+        Sort sort = pageable.getSort();
+        if (sort.isSorted()) {
+            List<Sort.Order> orders = sort.toList();
+            if (orders.size() != 1) {
+                return Optional.empty();
+            }
+            Sort.Order order = orders.get(0);
+            Optional<SortKey> key = SortKey.fromProperty(order.getProperty());
+            if (key.isEmpty()) {
+                return Optional.empty();
+            }
+            sortKey = key.get();
+            descending = order.isDescending();
+        }
+
+        ProductDTO[] sorted = sortedProducts(categoryId, sortKey);
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), sorted.length) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), sorted.length) : sorted.length;
+
+        List<ProductDTO> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            content.add(descending ? sorted[sorted.length - 1 - i] : sorted[i]);
+        }
+        return Optional.of(new PageImpl<>(content, pageable, sorted.length));
+    }
+
+    /**
+     * Cuts the page following {@code cursor}, seeking by binary search instead of skipping rows.
+     *
+     * @return the page, or empty for an unknown category
+     */
+    public Optional<CursorPageDTO<ProductDTO>> findPageAfter(Long categoryId, ProductCursor cursor, int size) {
+        if (categoryId != null && !categoriesById.containsKey(categoryId)) {
+            return Optional.empty();
+        }
+        ProductDTO[] sorted = sortedProducts(categoryId, cursor.getSortKey());
+        List<ProductDTO> ordered = cursor.isDescending() ? new Reversed(sorted) : Arrays.asList(sorted);
+        int from = cursor.seek(ordered);
+        int to = Math.min(from + size + 1, ordered.size());
+        return Optional.of(cursor.toPage(new ArrayList<>(ordered.subList(from, to)), size));
+    }
+
+    /**
+     * Active products in the given category (or the whole catalog when null), ascending by the sort key.
+     */
+    ProductDTO[] sortedProducts(Long categoryId, SortKey sortKey) {
+        Map<SortKey, ProductDTO[]> views = categoryId == null ? allProducts : productsByCategory.get(categoryId);
+        return views == null ? NO_PRODUCTS : views.get(sortKey);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Grows with every snapshot swapped in, stock-only ones included; never behind {@link #getVersion()}.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public Optional<ProductDTO> getProduct(Long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? Optional.of(allProducts.get(SortKey.ID)[index]) : Optional.empty();
+    }
+
+    public boolean hasCategory(Long categoryId) {
+        return categoriesById.containsKey(categoryId);
+    }
+
+    public Collection<ProductDTO> getProducts() {
+        return Collections.unmodifiableList(Arrays.asList(allProducts.get(SortKey.ID)));
+    }
+
+    public Collection<CategoryDTO> getCategories() {
+        return categoriesById.values();
+    }
+
+    /**
+     * All categories with their active-product counts, as served by the category endpoints.
+     */
+    public List<CategoryDTO> getCategoryList() {
+        return categoryList;
+    }
+
+    public Optional<CategoryDTO> getCategoryWithCount(Long categoryId) {
+        return categoryList.stream().filter(category -> category.getId().equals(categoryId)).findFirst();
+    }
+
+    /**
+     * Descending view over an ascending array, without copying it.
+     */
+    private static final class Reversed extends AbstractList<ProductDTO> implements RandomAccess {
+        private final ProductDTO[] ascending;
+
+        Reversed(ProductDTO[] ascending) {
+            this.ascending = ascending;
+        }
+
+        @Override
+        public ProductDTO get(int index) {
+            return ascending[ascending.length - 1 - index];
+        }
+
+        @Override
+        public int size() {
+            return ascending.length;
+        }
+    }
+
+    private static Map<SortKey, ProductDTO[]> sortedViews(Collection<ProductDTO> products) {
+        Map<SortKey, ProductDTO[]> views = new EnumMap<>(SortKey.class);
+        ProductDTO[] base = products.toArray(NO_PRODUCTS);
+        for (SortKey key : SortKey.values()) {
+            ProductDTO[] sorted = base.clone();
+            Arrays.sort(sorted, key.getComparator());
+            views.put(key, sorted);
+        }
+        return views;
+    }
+
+    private static Map<SortKey, ProductDTO[]> patchViews(Map<SortKey, ProductDTO[]> views,
+                                                         Collection<ProductDTO> removed, Collection<ProductDTO> added) {
+        Map<SortKey, ProductDTO[]> patched = new EnumMap<>(SortKey.class);
+        for (SortKey key : SortKey.values()) {
+            patched.put(key, patch(views.get(key), key.getComparator(), removed, added));
+        }
+        return patched;
+    }
+
+    // before.get(i) replaced by after.get(i) in a copy of each view; they sort the same
+    private static Map<SortKey, ProductDTO[]> replaceInViews(Map<SortKey, ProductDTO[]> views,
+                                                             List<ProductDTO> before, List<ProductDTO> after) {
+        Map<SortKey, ProductDTO[]> replaced = new EnumMap<>(SortKey.class);
+        for (SortKey key : SortKey.values()) {
+            ProductDTO[] sorted = views.get(key).clone();
+            for (int i = 0; i < before.size(); i++) {
+                sorted[Arrays.binarySearch(sorted, before.get(i), key.getComparator())] = after.get(i);
+            }
+            replaced.put(key, sorted);
+        }
+        return replaced;
+    }
+
+    // A copy of the sorted array without the removed products and with the added ones inserted
+    // where they sort; both are found by binary search, the rest is moved in runs
+    static ProductDTO[] patch(ProductDTO[] sorted, Comparator<ProductDTO> order,
+                              Collection<ProductDTO> removed, Collection<ProductDTO> added) {
+        int[] gone = removed.stream()
+                .mapToInt(product -> Arrays.binarySearch(sorted, product, order))
+                .filter(index -> index >= 0)
+                .sorted()
+                .distinct()
+                .toArray();
+        ProductDTO[] kept = sorted;
+        if (gone.length > 0) {
+            kept = new ProductDTO[sorted.length - gone.length];
+            int from = 0;
+            int to = 0;
+            for (int index : gone) {
+                System.arraycopy(sorted, from, kept, to, index - from);
+                to += index - from;
+                from = index + 1;
+            }
+            System.arraycopy(sorted, from, kept, to, sorted.length - from);
+        }
+        if (added.isEmpty()) {
+            return kept;
+        }
+
+        ProductDTO[] inserts = added.toArray(NO_PRODUCTS);
+        Arrays.sort(inserts, order);
+        ProductDTO[] result = new ProductDTO[kept.length + inserts.length];
+        int from = 0;
+        int to = 0;
+        for (ProductDTO product : inserts) {
+            int at = Arrays.binarySearch(kept, from, kept.length, product, order);
+            at = at >= 0 ? at : -at - 1;
+            System.arraycopy(kept, from, result, to, at - from);
+            to += at - from;
+            from = at;
+            result[to++] = product;
+        }
+        System.arraycopy(kept, from, result, to, kept.length - from);
+        return result;
+    }
+
+    private static Map<Long, List<ProductDTO>> groupByCategory(Collection<ProductDTO> products) {
+        Map<Long, List<ProductDTO>> grouped = new HashMap<>();
+        for (ProductDTO product : products) {
+            if (product.getCategory() != null) {
+                grouped.computeIfAbsent(product.getCategory().getId(), id -> new ArrayList<>()).add(product);
+            }
+        }
+        return grouped;
+    }
+
+    // patch() for the id array
+    private static long[] patchIds(long[] ids, Collection<ProductDTO> removed, Collection<ProductDTO> added) {
+        int[] gone = removed.stream()
+                .mapToInt(product -> Arrays.binarySearch(ids, product.getId()))
+                .filter(index -> index >= 0)
+                .sorted()
+                .distinct()
+                .toArray();
+        long[] inserts = added.stream().mapToLong(ProductDTO::getId).sorted().toArray();
+        long[] result = new long[ids.length - gone.length + inserts.length];
+        int to = 0;
+        int next = 0; // next gone index
+        int insert = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (next < gone.length && gone[next] == i) {
+                next++;
+                continue;
+            }
+            while (insert < inserts.length && inserts[insert] < ids[i]) {
+                result[to++] = inserts[insert++];
+            }
+            result[to++] = ids[i];
+        }
+        while (insert < inserts.length) {
+            result[to++] = inserts[insert++];
+        }
+        return result;
+    }
+
+    private static long[] idsOf(ProductDTO[] byId) {
+        long[] ids = new long[byId.length];
+        for (int i = 0; i < byId.length; i++) {
+            ids[i] = byId[i].getId();
+        }
+        return ids;
+    }
+}
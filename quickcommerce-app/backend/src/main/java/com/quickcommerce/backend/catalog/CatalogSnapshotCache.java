@@ -0,0 +1,328 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.CategoryDTO;
+import com.quickcommerce.backend.dto.CursorPageDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.model.Product;
+import com.quickcommerce.backend.repository.CategoryRepository;
+import com.quickcommerce.backend.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CatalogSnapshot} and swaps it atomically when the catalog changes.
+ *
+ * Change events are coalesced: ids are collected for a short delay and applied in one
+ * incremental rebuild that only re-reads the changed rows. All rebuilds run on a single
+ * background thread, so readers never block and never see a half-built snapshot.
+ * The same reads also feed every {@link CatalogIndexer}, and every
+ * {@link CatalogSnapshotListener} hears about each snapshot swapped in.
+ *
+ * Stock changes ({@link StockChangedEvent}) are coalesced the same way but only re-read the
+ * stock column, and are patched in under the same catalog version with a new revision, so
+ * they leave the indexers and the second-level cache alone.
+ */
+@Component
+@Slf4j
+public class CatalogSnapshotCache {
+
+    // Past this many changed ids a full reload is cheaper than an IN (...) query
+    private static final int MAX_INCREMENTAL_IDS = 1000;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final List<CatalogIndexer> indexers;
+    private final List<CatalogSnapshotListener> listeners;
+    private final TransactionTemplate readOnlyTx;
+    private final long rebuildDelayMs;
+    private final long fullRefreshIntervalMs;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    // Shared by versions and revisions, so both only ever grow
+    private final AtomicLong versions = new AtomicLong();
+    private final Set<Long> pendingProductIds = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingStockIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pendingFullReload = new AtomicBoolean();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final CountDownLatch firstSnapshot = new CountDownLatch(1);
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer fullRebuildTimer;
+    private final Timer incrementalRebuildTimer;
+    private final Timer stockPatchTimer;
+
+    public CatalogSnapshotCache(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                List<CatalogIndexer> indexers,
+                                List<CatalogSnapshotListener> listeners,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.catalog.snapshot.rebuild-delay-ms:500}") long rebuildDelayMs,
+                                @Value("${app.catalog.snapshot.full-refresh-interval-ms:600000}") long fullRefreshIntervalMs) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.indexers = indexers;
+        this.listeners = listeners;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.rebuildDelayMs = rebuildDelayMs;
+        this.fullRefreshIntervalMs = fullRefreshIntervalMs;
+
+        this.hits = Counter.builder("catalog.snapshot.requests")
+                .description("Catalog listing requests, by whether the in-memory snapshot could serve them")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("catalog.snapshot.requests")
+                .description("Catalog listing requests, by whether the in-memory snapshot could serve them")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.fullRebuildTimer = Timer.builder("catalog.snapshot.rebuild")
+                .description("Time taken to build a new catalog snapshot")
+                .tag("type", "full")
+                .register(meterRegistry);
+        this.incrementalRebuildTimer = Timer.builder("catalog.snapshot.rebuild")
+                .description("Time taken to build a new catalog snapshot")
+                .tag("type", "incremental")
+                .register(meterRegistry);
+        this.stockPatchTimer = Timer.builder("catalog.snapshot.rebuild")
+                .description("Time taken to build a new catalog snapshot")
+                .tag("type", "stock")
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.version", current, ref -> ref.get() == null ? 0 : ref.get().getVersion())
+                .description("Version of the catalog snapshot currently being served")
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.products", current, ref -> ref.get() == null ? 0 : ref.get().size())
+                .description("Active products held in the catalog snapshot")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (firstSnapshot.getCount() > 0) {
+            requestFullReload();
+        }
+        if (fullRefreshIntervalMs > 0) {
+            // Safety net for rows changed outside the application (SQL scripts, other services)
+            rebuildExecutor.scheduleWithFixedDelay(this::requestFullReload,
+                    fullRefreshIntervalMs, fullRefreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isFullReload()) {
+            requestFullReload();
+        } else {
+            pendingProductIds.addAll(event.getProductIds());
+            scheduleRebuild(rebuildDelayMs);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        pendingStockIds.addAll(event.getProductIds());
+        scheduleRebuild(rebuildDelayMs);
+    }
+
+    public void requestFullReload() {
+        pendingFullReload.set(true);
+        scheduleRebuild(0);
+    }
+
+    /**
+     * Builds the first snapshot right away instead of once the application is ready (startup
+     * warm-up), and waits for it.
+     *
+     * @return whether a snapshot is being served
+     */
+    public boolean awaitSnapshot(long timeout, TimeUnit unit) throws InterruptedException {
+        if (firstSnapshot.getCount() > 0) {
+            requestFullReload();
+        }
+        return firstSnapshot.await(timeout, unit);
+    }
+
+    /**
+     * The snapshot currently being served, if one has been built yet.
+     */
+    public Optional<CatalogSnapshot> getSnapshot() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * Serves a page of active products from the snapshot.
+     *
+     * @return the page, or empty when the caller has to go to the database
+     */
+    public Optional<Page<ProductDTO>> findActiveProducts(Long categoryId, Pageable pageable) {
+        CatalogSnapshot snapshot = current.get();
+        Optional<Page<ProductDTO>> page = snapshot == null ? Optional.empty() : snapshot.findPage(categoryId, pageable);
+        (page.isPresent() ? hits : misses).increment();
+        return page;
+    }
+
+    /**
+     * Keyset variant of {@link #findActiveProducts}.
+     *
+     * @return the page, or empty when the caller has to go to the database
+     */
+    public Optional<CursorPageDTO<ProductDTO>> findActiveProductsAfter(Long categoryId, ProductCursor cursor, int size) {
+        CatalogSnapshot snapshot = current.get();
+        Optional<CursorPageDTO<ProductDTO>> page = snapshot == null
+                ? Optional.empty()
+                : snapshot.findPageAfter(categoryId, cursor, size);
+        (page.isPresent() ? hits : misses).increment();
+        return page;
+    }
+
+    private void scheduleRebuild(long delayMs) {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(this::rebuildPending, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuildPending() {
+        // Cleared first so that changes arriving while we rebuild schedule another pass
+        rebuildScheduled.set(false);
+        boolean full = pendingFullReload.getAndSet(false);
+        Set<Long> productIds = drain(pendingProductIds);
+        Set<Long> stockIds = drain(pendingStockIds);
+        boolean rebuilt = false;
+        try {
+            if (full || current.get() == null || productIds.size() > MAX_INCREMENTAL_IDS) {
+                rebuildFull();
+                rebuilt = true;
+                // Read whole, stock included
+                stockIds.clear();
+            } else if (!productIds.isEmpty()) {
+                rebuildIncremental(productIds);
+                rebuilt = true;
+                stockIds.removeAll(productIds);
+            }
+            if (!stockIds.isEmpty()) {
+                patchStock(stockIds);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Catalog snapshot rebuild failed, retrying in {} ms", RETRY_DELAY_MS, ex);
+            if (!rebuilt) {
+                if (full) {
+                    pendingFullReload.set(true);
+                }
+                pendingProductIds.addAll(productIds);
+            }
+            pendingStockIds.addAll(stockIds);
+            scheduleRebuild(RETRY_DELAY_MS);
+        }
+    }
+
+    private void rebuildFull() {
+        Timer.Sample sample = Timer.start();
+        CatalogSnapshot snapshot = readOnlyTx.execute(status -> {
+            List<CategoryDTO> categories = categoryRepository.findAll().stream()
+                    .map(ProductDtoMapper::toCategoryDTO)
+                    .toList();
+            List<Product> activeProducts = productRepository.findAllActiveWithCategory();
+            indexers.forEach(indexer -> indexer.reload(activeProducts));
+            List<ProductDTO> products = activeProducts.stream()
+                    .map(ProductDtoMapper::toProductSummaryDTO)
+                    .toList();
+            return CatalogSnapshot.build(versions.incrementAndGet(), products, categories);
+        });
+        swap(snapshot, null);
+        long nanos = sample.stop(fullRebuildTimer);
+        log.info("Catalog snapshot v{} built: {} active products in {} ms",
+                snapshot.getVersion(), snapshot.size(), TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private void rebuildIncremental(Set<Long> productIds) {
+        Timer.Sample sample = Timer.start();
+        List<ProductDTO> changed = readOnlyTx.execute(status -> {
+            List<Product> changedProducts = productRepository.findAllWithCategoryByIdIn(productIds);
+            indexers.forEach(indexer -> indexer.update(changedProducts, productIds));
+            return changedProducts.stream()
+                    .map(ProductDtoMapper::toProductSummaryDTO)
+                    .toList();
+        });
+        CatalogSnapshot snapshot = current.get().withChanges(versions.incrementAndGet(), changed, productIds);
+        swap(snapshot, productIds);
+        sample.stop(incrementalRebuildTimer);
+        log.debug("Catalog snapshot v{} built from {} changed products", snapshot.getVersion(), productIds.size());
+    }
+
+    private void patchStock(Set<Long> productIds) {
+        Timer.Sample sample = Timer.start();
+        Map<Long, Integer> stockLevels = new HashMap<>(productIds.size() * 2);
+        readOnlyTx.executeWithoutResult(status -> productRepository.findStockByIdIn(productIds)
+                .forEach(level -> stockLevels.put(level.getId(), level.getStockQuantity())));
+        CatalogSnapshot snapshot = current.get().withStock(versions.incrementAndGet(), stockLevels);
+        swap(snapshot, productIds);
+        sample.stop(stockPatchTimer);
+        log.debug("Catalog snapshot v{} r{}: stock of {} products patched",
+                snapshot.getVersion(), snapshot.getRevision(), productIds.size());
+    }
+
+    private void swap(CatalogSnapshot snapshot, Set<Long> touchedIds) {
+        CatalogSnapshot previous = current.getAndSet(snapshot);
+        firstSnapshot.countDown();
+        if (previous == null) {
+            return;
+        }
+        for (CatalogSnapshotListener listener : listeners) {
+            try {
+                listener.onSnapshot(previous, snapshot, touchedIds);
+            } catch (RuntimeException ex) {
+                log.warn("Catalog snapshot listener {} failed", listener.getClass().getSimpleName(), ex);
+            }
+        }
+    }
+
+    private static Set<Long> drain(Set<Long> pending) {
+        Set<Long> drained = new HashSet<>();
+        for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,19 @@
+package com.quickcommerce.backend.catalog;
+
+import java.util.Collection;
+
+/**
+ * Notified by {@link CatalogSnapshotCache} each time a new snapshot replaces the previous one,
+ * on the rebuild thread. Implementations must return quickly; rebuilds wait for them.
+ */
+public interface CatalogSnapshotListener {
+
+    /**
+     * @param previous the snapshot served until now
+     * @param current the snapshot served from now on
+     * @param touchedIds the products an incremental rebuild or stock patch re-read, or {@code null}
+     *                   after a full reload. A stock patch keeps the version: {@code current} only
+     *                   differs from {@code previous} in the stock of these products
+     */
+    void onSnapshot(CatalogSnapshot previous, CatalogSnapshot current, Collection<Long> touchedIds);
+}
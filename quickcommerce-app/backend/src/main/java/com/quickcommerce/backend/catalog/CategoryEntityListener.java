@@ -0,0 +1,27 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.model.Category;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that requests a full catalog reload on category writes.
+ * Categories are few and rarely change, so narrowing the reload down isn't worth it.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCategoryChanged(Category category) {
+        eventPublisher.publishEvent(CatalogChangedEvent.fullReload());
+    }
+}
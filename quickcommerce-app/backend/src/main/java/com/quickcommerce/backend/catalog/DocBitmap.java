@@ -0,0 +1,61 @@
+package com.quickcommerce.backend.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Growable bitmap over search index ordinals, one bit per document.
+ *
+ * Only written while the index generation it belongs to is being built; once that generation
+ * is published it is read-only, and the next one works on a {@link #copy()}.
+ */
+final class DocBitmap {
+
+    private long[] words = new long[1];
+
+    DocBitmap copy() {
+        DocBitmap copy = new DocBitmap();
+        copy.words = words.clone();
+        return copy;
+    }
+
+    void set(int ordinal) {
+        int word = ordinal >>> 6;
+        long[] w = words;
+        if (word >= w.length) {
+            w = Arrays.copyOf(w, Math.max(word + 1, w.length * 2));
+            words = w;
+        }
+        w[word] |= 1L << ordinal;
+    }
+
+    void clear(int ordinal) {
+        int word = ordinal >>> 6;
+        long[] w = words;
+        if (word < w.length) {
+            w[word] &= ~(1L << ordinal);
+        }
+    }
+
+    boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of bits set both here and in {@code other}, looking only at words
+     * {@code fromWord} to {@code toWord} inclusive (where {@code other} has its bits).
+     */
+    int andCardinality(long[] other, int fromWord, int toWord) {
+        long[] w = words;
+        int end = Math.min(toWord, Math.min(w.length, other.length) - 1);
+        int count = 0;
+        for (int i = fromWord; i <= end; i++) {
+            count += Long.bitCount(w[i] & other[i]);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,153 @@
+package com.quickcommerce.backend.catalog;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Streaming top-K of the most frequent ids, in constant memory.
+ *
+ * Frequencies are estimated with a Count-Min sketch: {@code depth} rows of {@code width}
+ * counters, each id hashed to one counter per row, the estimate being the smallest of them
+ * (an overestimate only when other ids collide in every row). The top-K itself is kept
+ * Space-Saving style: a newcomer whose estimate beats the smallest entry of a full list
+ * replaces it. Recording is lock-free; only changes to the membership of the list lock.
+ *
+ * {@link #decay()} halves every count, so the list follows what's hot now rather than what
+ * was hot since startup. Ids leaving the list, either way, are reported to the eviction
+ * listener, under the lock.
+ */
+public final class HeavyHitters {
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray counts;
+    private final int k;
+    private final long minCount;
+    private final LongConsumer onEvicted;
+
+    // Members and their latest estimates; membership only changes under this
+    private final Map<Long, Long> top = new ConcurrentHashMap<>();
+    // Estimate a newcomer needs before it's worth taking the lock
+    private volatile long admissionThreshold;
+
+    /**
+     * @param k size of the top-K list
+     * @param width counters per sketch row, rounded up to a power of two
+     * @param depth sketch rows
+     * @param minCount smallest estimate that qualifies as a heavy hitter at all
+     * @param onEvicted called with every id that drops out of the top-K
+     */
+    public HeavyHitters(int k, int width, int depth, long minCount, LongConsumer onEvicted) {
+        this.k = k;
+        this.width = width <= 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.depth = depth;
+        this.counts = new AtomicLongArray(this.width * depth);
+        this.minCount = Math.max(1, minCount);
+        this.onEvicted = onEvicted;
+        this.admissionThreshold = this.minCount;
+    }
+
+    /**
+     * Counts one occurrence of {@code id}.
+     *
+     * @return the estimated count of {@code id} so far
+     */
+    public long add(long id) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts.incrementAndGet(row * width + index(id, row)));
+        }
+        long estimate = min;
+        // computeIfPresent so that a member being evicted concurrently isn't put back
+        if (top.computeIfPresent(id, (key, previous) -> estimate) == null && estimate >= admissionThreshold) {
+            admit(id, estimate);
+        }
+        return estimate;
+    }
+
+    public long estimate(long id) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.get(row * width + index(id, row)));
+        }
+        return estimate;
+    }
+
+    public boolean isHeavy(long id) {
+        return top.containsKey(id);
+    }
+
+    /**
+     * The current heavy hitters with their estimated counts, most frequent first.
+     */
+    public List<Map.Entry<Long, Long>> top() {
+        return top.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+                .toList();
+    }
+
+    /**
+     * Halves all counts, and drops heavy hitters that fall below the minimum count.
+     */
+    public synchronized void decay() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.getAndUpdate(i, count -> count >>> 1);
+        }
+        top.replaceAll((id, estimate) -> estimate >>> 1);
+        top.entrySet().removeIf(entry -> {
+            if (entry.getValue() >= minCount) {
+                return false;
+            }
+            onEvicted.accept(entry.getKey());
+            return true;
+        });
+        updateThreshold();
+    }
+
+    private synchronized void admit(long id, long estimate) {
+        if (top.containsKey(id)) {
+            top.put(id, estimate);
+            return;
+        }
+        if (top.size() >= k) {
+            Map.Entry<Long, Long> smallest = smallest();
+            if (smallest.getValue() >= estimate) {
+                updateThreshold();
+                return;
+            }
+            top.remove(smallest.getKey());
+            onEvicted.accept(smallest.getKey());
+        }
+        top.put(id, estimate);
+        updateThreshold();
+    }
+
+    private void updateThreshold() {
+        admissionThreshold = top.size() < k ? minCount : Math.max(minCount, smallest().getValue() + 1);
+    }
+
+    private Map.Entry<Long, Long> smallest() {
+        Map.Entry<Long, Long> smallest = null;
+        for (Map.Entry<Long, Long> entry : top.entrySet()) {
+            if (smallest == null || entry.getValue() < smallest.getValue()) {
+                smallest = entry;
+            }
+        }
+        return smallest;
+    }
+
+    // A different multiply-shift hash per row
+    private int index(long id, int row) {
+        long h = (id + row) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L + 2L * row;
+        return (int) (h >>> 32) & mask;
+    }
+}
@@ -0,0 +1,106 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.HotProductDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Product detail reads of the products getting the most views right now, pinned in memory.
+ *
+ * Every {@code getProductById} is counted in a {@link HeavyHitters} sketch; only products in
+ * its current top-K are kept here, and they stay until they drop out of it (pushed out by a
+ * hotter product, or decayed) or change; stock changes are patched into the pinned copy instead. Nothing else competes for the space, so a
+ * burst of reads of other products can't evict them.
+ */
+@Component
+@Slf4j
+public class HotProductCache implements CatalogSnapshotListener {
+
+    private final boolean enabled;
+    private final HeavyHitters tracker;
+    private final Map<Long, ProductDTO> pinned = new ConcurrentHashMap<>();
+    // Bumped on every invalidation, so a read that raced with one isn't pinned
+    private final AtomicLong generation = new AtomicLong();
+
+    public HotProductCache(@Value("${app.catalog.hot-products.enabled:true}") boolean enabled,
+                           @Value("${app.catalog.hot-products.top-k:20}") int topK,
+                           @Value("${app.catalog.hot-products.sketch-width:4096}") int sketchWidth,
+                           @Value("${app.catalog.hot-products.sketch-depth:4}") int sketchDepth,
+                           @Value("${app.catalog.hot-products.min-views:50}") long minViews) {
+        this.enabled = enabled;
+        this.tracker = new HeavyHitters(topK, sketchWidth, sketchDepth, minViews, pinned::remove);
+    }
+
+    /**
+     * Counts a view of the product and returns its pinned copy, if it's hot and cached.
+     */
+    public Optional<ProductDTO> recordView(Long productId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        tracker.add(productId);
+        return Optional.ofNullable(pinned.get(productId));
+    }
+
+    /**
+     * Taken before reading a product from the database, and handed back to {@link #offer}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Pins a freshly read product if it's currently a heavy hitter and hasn't changed since
+     * {@code readGeneration}.
+     */
+    public void offer(ProductDTO product, long readGeneration) {
+        if (!enabled || !tracker.isHeavy(product.getId()) || generation.get() != readGeneration) {
+            return;
+        }
+        pinned.put(product.getId(), product);
+        if (generation.get() != readGeneration || !tracker.isHeavy(product.getId())) {
+            // Invalidated, or pushed out of the top-K, while we were putting it in
+            pinned.remove(product.getId(), product);
+        }
+    }
+
+    public List<HotProductDTO> getHotProducts() {
+        return tracker.top().stream()
+                .map(entry -> new HotProductDTO(entry.getKey(), entry.getValue(), pinned.containsKey(entry.getKey())))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.hot-products.decay-interval-ms:60000}")
+    public void decay() {
+        if (!enabled) {
+            return;
+        }
+        // Products that decay out of the top-K are unpinned by the tracker
+        tracker.decay();
+    }
+
+    @Override
+    public void onSnapshot(CatalogSnapshot previous, CatalogSnapshot current, Collection<Long> touchedIds) {
+        generation.incrementAndGet();
+        if (touchedIds == null) {
+            pinned.clear();
+        } else if (current.getVersion() == previous.getVersion()) {
+            // Stock only: the pinned copies stay, with the new stock
+            touchedIds.forEach(id -> pinned.computeIfPresent(id, (key, product) -> current.getProduct(id)
+                    .map(latest -> ProductDtoMapper.withStock(product, latest.getStockQuantity()))
+                    .orElse(null)));
+        } else {
+            touchedIds.forEach(pinned::remove);
+        }
+    }
+}
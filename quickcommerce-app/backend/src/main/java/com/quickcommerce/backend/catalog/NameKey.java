@@ -0,0 +1,54 @@
+package com.quickcommerce.backend.catalog;
+
+import java.util.Comparator;
+
+/**
+ * The order product names sort in, wherever they are sorted: the snapshot's views, and the
+ * DB queries behind offset and cursor pages when they fall back to the database.
+ *
+ * The database keeps it in {@code products.name_key}, {@code upper(name)} in the "C" collation
+ * (V22): ASCII letters are upper-cased, nothing else is, and names compare code point by code
+ * point. Ordering by {@code upper(name)} alone would fold and compare by the database's locale,
+ * which can't be reproduced here.
+ */
+public final class NameKey {
+
+    /**
+     * Compares names as {@code name_key} does, without building the upper-cased strings.
+     */
+    public static final Comparator<String> ORDER = NameKey::compare;
+
+    private NameKey() {
+    }
+
+    /**
+     * The {@code name_key} of a name: its ASCII letters upper-cased, as {@code upper()} does in
+     * the "C" collation.
+     */
+    public static String of(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        name.codePoints().map(NameKey::fold).forEach(key::appendCodePoint);
+        return key.toString();
+    }
+
+    public static int compare(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            int ua = fold(ca);
+            int ub = fold(cb);
+            if (ua != ub) {
+                return Integer.compare(ua, ub);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return i < a.length() ? 1 : (j < b.length() ? -1 : 0);
+    }
+
+    private static int fold(int codePoint) {
+        return codePoint >= 'a' && codePoint <= 'z' ? codePoint - ('a' - 'A') : codePoint;
+    }
+}
@@ -0,0 +1,41 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.model.Product;
+import com.quickcommerce.backend.repository.ProductRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Drops second-level cache entries of changed products once the change has committed.
+ *
+ * Changes made through Hibernate keep the cache current by themselves, but catalog imports
+ * update {@code products} with plain JDBC, which Hibernate never sees, and publish a
+ * {@link CatalogChangedEvent}, so that's where their cached copies are evicted.
+ *
+ * Stock changes ({@link StockChangedEvent}) deliberately evict nothing: they come with every
+ * checkout. The stock of a cached product may therefore lag. Stock is read from the inventory
+ * service and the catalog snapshot, and the entity never writes it back.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCacheEvictionListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Cache cache = entityManagerFactory.getCache();
+        if (event.isFullReload()) {
+            cache.evict(Product.class);
+        } else {
+            event.getProductIds().forEach(id -> cache.evict(Product.class, id));
+        }
+        // Cached result lists only notice table changes made through Hibernate
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(ProductRepository.ACTIVE_PRODUCTS_REGION);
+    }
+}
@@ -0,0 +1,335 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.dto.ProductDeltaDTO;
+import com.quickcommerce.backend.exception.BadRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process feed of price and stock changes, fed by diffing consecutive catalog snapshots
+ * for the products somebody subscribed to.
+ *
+ * Every subscription has its own small buffer keyed by product: a newer change to a product
+ * replaces the one still waiting, so a client only ever receives the latest values. When a
+ * slow client has more distinct products waiting than the buffer holds, the oldest are
+ * dropped and the next delivery tells it how many it missed, so it can refetch. Deliveries
+ * and keep-alives run on a small sender pool, one at a time per subscription; a client that
+ * can't keep up only ever holds its bounded buffer and, while a write blocks, one sender thread.
+ * A write blocked for longer than the send timeout, or a sender queue too full to take a
+ * subscription's next send, closes that subscription and its sink, so stuck clients can't
+ * hold the pool for everyone else.
+ */
+@Component
+@Slf4j
+public class ProductChangeBus implements CatalogSnapshotListener {
+
+    /**
+     * Where a subscription's changes go, e.g. an SSE connection.
+     */
+    public interface Sink {
+
+        /**
+         * @param changes latest values of the products that changed since the last delivery
+         * @param dropped how many changes were dropped since the last delivery
+         */
+        void deliver(List<ProductDeltaDTO> changes, int dropped) throws IOException;
+
+        void keepAlive() throws IOException;
+
+        /**
+         * Ends the connection after the bus has given up on it.
+         */
+        void close();
+    }
+
+    private final Map<Long, Set<Subscription>> subscriptionsByProduct = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sender;
+    private final ScheduledExecutorService keepAlive = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-changes-keepalive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int maxIds;
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final Counter dropped;
+    private final Counter evicted;
+
+    public ProductChangeBus(MeterRegistry meterRegistry,
+                            @Value("${app.catalog.changes.max-ids:100}") int maxIds,
+                            @Value("${app.catalog.changes.buffer-size:32}") int bufferSize,
+                            @Value("${app.catalog.changes.sender-threads:4}") int senderThreads,
+                            @Value("${app.catalog.changes.sender-queue-size:1000}") int senderQueueSize,
+                            @Value("${app.catalog.changes.send-timeout-ms:10000}") long sendTimeoutMs,
+                            @Value("${app.catalog.changes.keep-alive-ms:15000}") long keepAliveMs) {
+        this.maxIds = maxIds;
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(senderQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "product-changes-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.keepAlive.scheduleWithFixedDelay(this::sendKeepAlive, keepAliveMs, keepAliveMs, TimeUnit.MILLISECONDS);
+        long stallCheckMs = Math.max(1, sendTimeoutMs / 2);
+        this.keepAlive.scheduleWithFixedDelay(this::evictStalled, stallCheckMs, stallCheckMs, TimeUnit.MILLISECONDS);
+
+        this.dropped = Counter.builder("catalog.changes.dropped")
+                .description("Product changes dropped because a subscriber's buffer was full")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("catalog.changes.evicted")
+                .description("Product change feed subscriptions closed because sends stalled or the sender queue was full")
+                .register(meterRegistry);
+        Gauge.builder("catalog.changes.subscribers", subscriptions, Set::size)
+                .description("Open product change feed subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts delivering changes of the given products to {@code sink} until the returned
+     * subscription is closed.
+     *
+     * @throws BadRequestException if no or too many product ids are given
+     */
+    public Subscription subscribe(Collection<Long> productIds, Sink sink) {
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+        if (ids.isEmpty() || ids.size() > maxIds) {
+            throw new BadRequestException("Between 1 and " + maxIds + " product ids can be watched at once");
+        }
+        Subscription subscription = new Subscription(ids, sink);
+        subscriptions.add(subscription);
+        for (Long id : ids) {
+            subscriptionsByProduct.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+        }
+        return subscription;
+    }
+
+    @Override
+    public void onSnapshot(CatalogSnapshot previous, CatalogSnapshot current, Collection<Long> touchedIds) {
+        if (subscriptionsByProduct.isEmpty()) {
+            return;
+        }
+        // After a full reload anything may have changed, but only watched products matter
+        Collection<Long> candidates = touchedIds != null ? touchedIds : subscriptionsByProduct.keySet();
+        for (Long id : candidates) {
+            Set<Subscription> watchers = subscriptionsByProduct.get(id);
+            if (watchers == null) {
+                continue;
+            }
+            ProductDTO before = previous.getProduct(id).orElse(null);
+            ProductDTO after = current.getProduct(id).orElse(null);
+            if (!changed(before, after)) {
+                continue;
+            }
+            ProductDeltaDTO delta = after == null
+                    ? new ProductDeltaDTO(id, null, 0, false, current.getRevision())
+                    : new ProductDeltaDTO(id, after.getPrice(), after.getStockQuantity(),
+                            after.getStockQuantity() > 0, current.getRevision());
+            watchers.forEach(subscription -> subscription.offer(delta));
+        }
+    }
+
+    private static boolean changed(ProductDTO before, ProductDTO after) {
+        if (before == null || after == null) {
+            return before != after;
+        }
+        return !Objects.equals(before.getStockQuantity(), after.getStockQuantity())
+                || (before.getPrice() == null ? after.getPrice() != null
+                        : after.getPrice() == null || before.getPrice().compareTo(after.getPrice()) != 0);
+    }
+
+    private void sendKeepAlive() {
+        for (Subscription subscription : subscriptions) {
+            subscription.requestKeepAlive();
+        }
+    }
+
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            long since = subscription.sendingSince;
+            if (since != 0 && now - since > sendTimeoutNanos) {
+                log.debug("Product change send stalled, closing subscription");
+                subscription.evict();
+            }
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        for (Long id : subscription.productIds) {
+            subscriptionsByProduct.computeIfPresent(id, (key, watchers) -> {
+                watchers.remove(subscription);
+                return watchers.isEmpty() ? null : watchers;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keepAlive.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    public final class Subscription {
+
+        private final Set<Long> productIds;
+        private final Sink sink;
+        // Guarded by this: latest change per product, oldest first
+        private final LinkedHashMap<Long, ProductDeltaDTO> pending = new LinkedHashMap<>();
+        private int droppedSinceDelivery;
+        private boolean draining;
+        private boolean keepAliveDue;
+        // System.nanoTime() when the current write started, 0 while none is in progress
+        private volatile long sendingSince;
+        private volatile boolean closed;
+
+        private Subscription(Set<Long> productIds, Sink sink) {
+            this.productIds = productIds;
+            this.sink = sink;
+        }
+
+        public Set<Long> getProductIds() {
+            return productIds;
+        }
+
+        /**
+         * Stops deliveries; safe to call more than once.
+         */
+        public void close() {
+            closed = true;
+            synchronized (this) {
+                pending.clear();
+            }
+            remove(this);
+        }
+
+        private void offer(ProductDeltaDTO delta) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                // Re-inserted so a product that keeps changing doesn't stay the oldest entry
+                pending.remove(delta.getProductId());
+                pending.put(delta.getProductId(), delta);
+                if (pending.size() > bufferSize) {
+                    Iterator<ProductDeltaDTO> oldest = pending.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    droppedSinceDelivery++;
+                    dropped.increment();
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            startDrain();
+        }
+
+        // Skipped while a drain is pending or running: that one keeps the connection busy, or
+        // is stuck and will be evicted
+        private void requestKeepAlive() {
+            synchronized (this) {
+                if (closed || draining) {
+                    return;
+                }
+                keepAliveDue = true;
+                draining = true;
+            }
+            startDrain();
+        }
+
+        private void startDrain() {
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                log.debug("Product change sender queue full, closing subscription");
+                synchronized (this) {
+                    draining = false;
+                }
+                evict();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<ProductDeltaDTO> batch;
+                int droppedCount;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !keepAliveDue)) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    droppedCount = droppedSinceDelivery;
+                    pending.clear();
+                    droppedSinceDelivery = 0;
+                    keepAliveDue = false;
+                }
+                sendingSince = System.nanoTime();
+                try {
+                    if (batch.isEmpty()) {
+                        sink.keepAlive();
+                    } else {
+                        sink.deliver(batch, droppedCount);
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    log.debug("Product change delivery failed, closing subscription: {}", ex.getMessage());
+                    sendingSince = 0;
+                    synchronized (this) {
+                        draining = false;
+                    }
+                    close();
+                    return;
+                }
+                sendingSince = 0;
+            }
+        }
+
+        private void evict() {
+            if (closed) {
+                return;
+            }
+            evicted.increment();
+            close();
+            try {
+                sink.close();
+            } catch (RuntimeException ex) {
+                log.debug("Closing an evicted product change subscription failed: {}", ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.CursorPageDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.exception.BadRequestException;
+import com.quickcommerce.backend.model.Product;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Position in a keyset-paginated product listing: the sort key, its direction, and the
+ * sort value and id of the last product handed out. Clients see it as an opaque token.
+ *
+ * The token carries the order it was issued for, so follow-up pages keep that order
+ * regardless of any sort parameter sent along with them.
+ */
+public final class ProductCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final CatalogSnapshot.SortKey sortKey;
+    private final boolean descending;
+    private final ProductDTO last; // null before the first page
+
+    private ProductCursor(CatalogSnapshot.SortKey sortKey, boolean descending, ProductDTO last) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.last = last;
+    }
+
+    /**
+     * Parses the {@code after} parameter. An empty value starts a new listing in the given order
+     * (by name when unsorted).
+     *
+     * @throws BadRequestException if the token is malformed or the sort isn't a single supported key
+     */
+    public static ProductCursor parse(String after, Sort sort) {
+        if (after == null || after.isBlank()) {
+            return start(sort);
+        }
+        try {
+            // key|a or d|id|value; the value goes last since it may contain '|'
+            String[] parts = new String(DECODER.decode(after), StandardCharsets.UTF_8).split("\\|", 4);
+            CatalogSnapshot.SortKey key = CatalogSnapshot.SortKey.fromProperty(parts[0])
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown sort key"));
+            ProductDTO last = new ProductDTO();
+            last.setId(Long.parseLong(parts[2]));
+            switch (key) {
+                case NAME -> last.setName(parts[3]);
+                case PRICE -> last.setPrice(new BigDecimal(parts[3]));
+                default -> { }
+            }
+            return new ProductCursor(key, "d".equals(parts[1]), last);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor: " + after, e);
+        }
+    }
+
+    private static ProductCursor start(Sort sort) {
+        if (sort.isUnsorted()) {
+            return new ProductCursor(CatalogSnapshot.SortKey.NAME, false, null);
+        }
+        List<Sort.Order> orders = sort.toList();
+        Optional<CatalogSnapshot.SortKey> key = orders.size() == 1
+                ? CatalogSnapshot.SortKey.fromProperty(orders.get(0).getProperty())
+                : Optional.empty();
+        if (key.isEmpty()) {
+            throw new BadRequestException("Cursor paging supports a single sort by id, name or price");
+        }
+        return new ProductCursor(key.get(), orders.get(0).isDescending(), null);
+    }
+
+    public String encode() {
+        String value = switch (sortKey) {
+            case NAME -> last.getName();
+            case PRICE -> last.getPrice().toPlainString();
+            default -> "";
+        };
+        String raw = sortKey.getProperty() + "|" + (descending ? "d" : "a") + "|" + last.getId() + "|" + value;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CatalogSnapshot.SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public boolean isStart() {
+        return last == null;
+    }
+
+    /**
+     * The last product of the previous page; only the id and the sort value are set.
+     */
+    public Optional<ProductDTO> getLast() {
+        return Optional.ofNullable(last);
+    }
+
+    /**
+     * The listing order this cursor walks, matching the snapshot's {@link CatalogSnapshot.SortKey} views.
+     */
+    public Comparator<ProductDTO> order() {
+        return descending ? sortKey.getComparator().reversed() : sortKey.getComparator();
+    }
+
+    /**
+     * The DB equivalent of {@link #order()}; names sort by {@code name_key}, ties broken by id.
+     */
+    public Sort sort() {
+        return sortKey.toDbSort(descending ? Sort.Direction.DESC : Sort.Direction.ASC);
+    }
+
+    /**
+     * Rows strictly after this cursor in {@link #sort()} order: (key > value) OR (key = value AND
+     * id > lastId), flipped when descending. Compares the same columns {@link #sort()} orders by,
+     * so the two can't disagree about which rows come first.
+     */
+    public Specification<Product> seek() {
+        return (root, cq, cb) -> {
+            if (last == null) {
+                return null;
+            }
+            Long lastId = last.getId();
+            Predicate idAfter = descending ? cb.lessThan(root.get("id"), lastId) : cb.greaterThan(root.get("id"), lastId);
+            switch (sortKey) {
+                case NAME -> {
+                    Expression<String> name = root.get("nameKey");
+                    String value = NameKey.of(last.getName());
+                    return cb.or(descending ? cb.lessThan(name, value) : cb.greaterThan(name, value),
+                                 cb.and(cb.equal(name, value), idAfter));
+                }
+                case PRICE -> {
+                    Expression<BigDecimal> price = root.get("price");
+                    BigDecimal value = last.getPrice();
+                    return cb.or(descending ? cb.lessThan(price, value) : cb.greaterThan(price, value),
+                                 cb.and(cb.equal(price, value), idAfter));
+                }
+                default -> {
+                    return idAfter;
+                }
+            }
+        };
+    }
+
+    /**
+     * Index of the first product after this cursor in a list already sorted by {@link #order()}.
+     */
+    public int seek(List<ProductDTO> ordered) {
+        if (last == null) {
+            return 0;
+        }
+        Comparator<ProductDTO> order = order();
+        int lo = 0;
+        int hi = ordered.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.compare(ordered.get(mid), last) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Turns up to {@code size + 1} products following this cursor into a page; the extra one
+     * only signals that there is a next page.
+     */
+    public CursorPageDTO<ProductDTO> toPage(List<ProductDTO> window, int size) {
+        boolean hasNext = window.size() > size;
+        List<ProductDTO> content = hasNext ? new ArrayList<>(window.subList(0, size)) : window;
+        String next = hasNext ? new ProductCursor(sortKey, descending, content.get(size - 1)).encode() : null;
+        return new CursorPageDTO<>(content, content.size(), next, hasNext);
+    }
+}
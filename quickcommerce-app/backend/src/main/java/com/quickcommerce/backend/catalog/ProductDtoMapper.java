@@ -0,0 +1,55 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.CategoryDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.model.Category;
+import com.quickcommerce.backend.model.Product;
+
+/**
+ * Entity to DTO mapping shared by ProductService and the in-memory catalog views.
+ */
+public final class ProductDtoMapper {
+
+    private ProductDtoMapper() {
+    }
+
+    public static CategoryDTO toCategoryDTO(Category category) {
+        if (category == null) return null;
+        return new CategoryDTO(category.getId(), category.getName());
+    }
+
+    public static ProductDTO toProductDTO(Product product) {
+        if (product == null) return null;
+        // Accessing product.getCategory() triggers lazy loading if not already loaded
+        CategoryDTO categoryDTO = toCategoryDTO(product.getCategory());
+        return new ProductDTO(
+            product.getId(),
+            product.getName(),
+            product.getDescription(),
+            product.getPrice(),
+            product.getStockQuantity(),
+            product.getImageUrl(),
+            categoryDTO,
+            product.isActive()
+        );
+    }
+
+    /**
+     * List variant without the description. The category must already be loaded (fetch join),
+     * otherwise this is where the per-row lazy load would happen.
+     */
+    public static ProductDTO toProductSummaryDTO(Product product) {
+        if (product == null) return null;
+        ProductDTO dto = toProductDTO(product);
+        dto.setDescription(null);
+        return dto;
+    }
+
+    /**
+     * A copy of the product with another stock level, for DTOs that are shared and read-only.
+     */
+    public static ProductDTO withStock(ProductDTO product, int stockQuantity) {
+        return new ProductDTO(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                stockQuantity, product.getImageUrl(), product.getCategory(), product.isActive());
+    }
+}
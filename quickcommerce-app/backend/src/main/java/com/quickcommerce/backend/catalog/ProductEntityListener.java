@@ -0,0 +1,29 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.model.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * JPA entity listener that turns product writes into {@link CatalogChangedEvent}s.
+ * Hibernate resolves this listener through Spring, so it can have dependencies injected.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onProductChanged(Product product) {
+        eventPublisher.publishEvent(CatalogChangedEvent.forProducts(List.of(product.getId())));
+    }
+}
@@ -0,0 +1,756 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.CategoryFacetDTO;
+import com.quickcommerce.backend.dto.CursorPageDTO;
+import com.quickcommerce.backend.dto.FacetedPageDTO;
+import com.quickcommerce.backend.dto.PriceRangeFacetDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.dto.SearchFacetsDTO;
+import com.quickcommerce.backend.model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ *
+ * Each term maps to an immutable posting list of (document ordinal, weight) pairs sorted by
+ * ordinal. A weight combines the per-field term frequency (saturated, BM25 style) with the
+ * field boost; idf is applied at query time. All query terms must match, and the last one
+ * also matches as a prefix so results keep up with a user who is still typing.
+ *
+ * Alongside the postings, a bitmap per category and per price bucket marks which ordinals
+ * fall into it. Facet counts for a search are the intersections of those bitmaps with the
+ * hit set, computed in the same pass as the search itself.
+ *
+ * Writes come from the catalog snapshot thread only. Each one builds a new generation of the
+ * index, copying what it changes from the current one, and publishes it with a single volatile
+ * write, so searches run lock-free against a consistent view of every term and document.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex implements CatalogIndexer {
+
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float TF_SATURATION = 1.2f;
+    private static final long NO_CATEGORY = -1L;
+
+    private final float nameBoost;
+    private final float descriptionBoost;
+    private final long[] priceBucketBoundsCents;
+
+    private volatile State state;
+    private volatile boolean ready;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public ProductSearchIndex(@Value("${app.search.boost.name:3.0}") float nameBoost,
+                              @Value("${app.search.boost.description:1.0}") float descriptionBoost,
+                              @Value("${app.search.facets.price-buckets:50,100,200,500}") String priceBuckets) {
+        this.nameBoost = nameBoost;
+        this.descriptionBoost = descriptionBoost;
+        this.priceBucketBoundsCents = Arrays.stream(priceBuckets.split(","))
+                .map(String::trim)
+                .filter(bound -> !bound.isEmpty())
+                .mapToLong(bound -> new BigDecimal(bound).movePointRight(2).longValueExact())
+                .sorted()
+                .distinct()
+                .toArray();
+        this.state = new State(priceBucketBoundsCents.length + 1);
+    }
+
+    /**
+     * True once the index has been loaded; before that, callers should fall back to the database.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    // --- Indexing ---
+
+    @Override
+    public synchronized void reload(Collection<Product> activeProducts) {
+        State fresh = new State(priceBucketBoundsCents.length + 1);
+        fresh.docs = new Docs(Math.max(16, activeProducts.size()));
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        for (Product product : activeProducts) {
+            int ordinal = fresh.allocateOrdinal(product.getId());
+            fresh.docs.set(ordinal, product);
+            addToFacets(fresh, ordinal);
+            Map<String, Float> weights = termWeights(product);
+            fresh.termsByOrdinal[ordinal] = weights.keySet().toArray(new String[0]);
+            // Ordinals are handed out in increasing order, so every builder stays sorted
+            weights.forEach((term, weight) ->
+                    builders.computeIfAbsent(term, t -> new PostingsBuilder()).add(ordinal, weight));
+        }
+        builders.forEach((term, builder) -> fresh.terms.put(term, builder.build()));
+        fresh.liveDocs = activeProducts.size();
+        this.state = fresh;
+        this.ready = true;
+        log.info("Product search index loaded: {} products, {} terms", fresh.liveDocs, fresh.terms.size());
+    }
+
+    @Override
+    public synchronized void update(Collection<Product> changedProducts, Collection<Long> touchedIds) {
+        // Searches keep reading the current generation, freed ordinals included, until the swap below
+        State s = state.copy();
+        for (Long productId : touchedIds) {
+            Integer ordinal = s.ordinalsByProductId.remove(productId);
+            if (ordinal == null) {
+                continue;
+            }
+            for (String term : s.termsByOrdinal[ordinal]) {
+                Postings postings = s.terms.get(term);
+                Postings remaining = postings == null ? null : postings.without(ordinal);
+                if (remaining == null) {
+                    s.terms.remove(term);
+                } else {
+                    s.terms.put(term, remaining);
+                }
+            }
+            s.termsByOrdinal[ordinal] = null;
+            removeFromFacets(s, ordinal);
+            s.docs.clear(ordinal);
+            s.freeOrdinals.push(ordinal);
+            s.liveDocs--;
+        }
+        for (Product product : changedProducts) {
+            if (!product.isActive()) {
+                continue;
+            }
+            int ordinal = s.allocateOrdinal(product.getId());
+            s.docs.set(ordinal, product);
+            addToFacets(s, ordinal);
+            Map<String, Float> weights = termWeights(product);
+            String[] terms = new String[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                Postings postings = s.terms.get(entry.getKey());
+                s.terms.put(entry.getKey(), postings == null
+                        ? new Postings(new int[]{ordinal}, new float[]{entry.getValue()})
+                        : postings.with(ordinal, entry.getValue()));
+                terms[i++] = entry.getKey();
+            }
+            s.termsByOrdinal[ordinal] = terms;
+            s.liveDocs++;
+        }
+        this.state = s;
+    }
+
+    private void addToFacets(State s, int ordinal) {
+        s.categoryBits.computeIfAbsent(s.docs.categoryIds[ordinal], id -> new DocBitmap()).set(ordinal);
+        s.priceBits[priceBucket(s.docs.priceCents[ordinal])].set(ordinal);
+    }
+
+    private void removeFromFacets(State s, int ordinal) {
+        DocBitmap category = s.categoryBits.get(s.docs.categoryIds[ordinal]);
+        if (category != null) {
+            category.clear(ordinal);
+            if (category.isEmpty()) {
+                s.categoryBits.remove(s.docs.categoryIds[ordinal]);
+            }
+        }
+        s.priceBits[priceBucket(s.docs.priceCents[ordinal])].clear(ordinal);
+    }
+
+    // Bucket i covers [bound(i - 1), bound(i)); the last one is open-ended
+    private int priceBucket(long cents) {
+        int i = Arrays.binarySearch(priceBucketBoundsCents, cents);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    private Map<String, Float> termWeights(Product product) {
+        Map<String, int[]> frequencies = new LinkedHashMap<>();
+        for (String token : tokenize(product.getName())) {
+            frequencies.computeIfAbsent(token, t -> new int[2])[0]++;
+        }
+        for (String token : tokenize(product.getDescription())) {
+            frequencies.computeIfAbsent(token, t -> new int[2])[1]++;
+        }
+        Map<String, Float> weights = new LinkedHashMap<>();
+        frequencies.forEach((term, tf) ->
+                weights.put(term, nameBoost * saturate(tf[0]) + descriptionBoost * saturate(tf[1])));
+        return weights;
+    }
+
+    private static float saturate(int tf) {
+        return tf / (tf + TF_SATURATION);
+    }
+
+    /**
+     * Lower-cases and splits on anything that isn't a letter or digit.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // --- Searching ---
+
+    /**
+     * Searches active products and cuts the requested page.
+     *
+     * Unsorted requests are ranked by relevance; a single {@link CatalogSnapshot.SortKey} sort
+     * orders all matches by that key instead. Product DTOs are resolved from {@code snapshot}.
+     * The page carries category and price range facet counts for the query.
+     *
+     * @return the page, or empty if the request uses a sort the index can't serve
+     */
+    public Optional<Page<ProductDTO>> search(CatalogSnapshot snapshot, String query, Long categoryId,
+                                             BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        Comparator<ProductDTO> fieldOrder = null;
+        Sort sort = pageable.getSort();
+        if (sort.isSorted()) {
+            List<Sort.Order> orders = sort.toList();
+            Optional<CatalogSnapshot.SortKey> key = orders.size() == 1
+                    ? CatalogSnapshot.SortKey.fromProperty(orders.get(0).getProperty())
+                    : Optional.empty();
+            if (key.isEmpty()) {
+                return Optional.empty();
+            }
+            fieldOrder = orders.get(0).isDescending() ? key.get().getComparator().reversed() : key.get().getComparator();
+        }
+
+        Comparator<ProductDTO> order = fieldOrder;
+        Page<ProductDTO> noMatches = new FacetedPageDTO<>(List.of(), pageable, 0, toFacetsDTO(snapshot, null));
+        return Optional.of(match(query, categoryId, minPrice, maxPrice, true, noMatches, (docs, sc, hitCount, facets) -> {
+            Page<ProductDTO> page = order == null
+                    ? pageByRelevance(snapshot, docs, sc, hitCount, pageable)
+                    : pageByField(snapshot, docs, sc, hitCount, order, pageable);
+            return new FacetedPageDTO<>(page.getContent(), pageable, page.getTotalElements(), toFacetsDTO(snapshot, facets));
+        }));
+    }
+
+    /**
+     * Keyset variant of {@link #search}: the matches following {@code cursor} in its order,
+     * without a total count.
+     */
+    public CursorPageDTO<ProductDTO> searchAfter(CatalogSnapshot snapshot, String query, Long categoryId,
+                                                 BigDecimal minPrice, BigDecimal maxPrice, ProductCursor cursor, int size) {
+        return match(query, categoryId, minPrice, maxPrice, false, cursor.toPage(List.of(), size), (docs, sc, hitCount, facets) -> {
+            List<ProductDTO> matches = sortedMatches(snapshot, docs, sc, hitCount, cursor.order());
+            int from = cursor.seek(matches);
+            int to = Math.min(from + size + 1, matches.size());
+            return cursor.toPage(new ArrayList<>(matches.subList(from, to)), size);
+        });
+    }
+
+    @FunctionalInterface
+    private interface HitsHandler<T> {
+        T handle(Docs docs, Scratch sc, int hitCount, FacetCounts facets);
+    }
+
+    /**
+     * Runs the query and hands the matching, filtered ordinals (in {@code sc.hits}) to {@code handler},
+     * along with facet counts if {@code withFacets} is set (null otherwise).
+     *
+     * @return the handler's result, or {@code noMatches} if some query term matches nothing
+     */
+    private <T> T match(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                        boolean withFacets, T noMatches, HitsHandler<T> handler) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return noMatches;
+        }
+
+        State s = state;
+        List<TermMatch> matches = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            TermMatch match = lookup(s, tokens.get(i), i == tokens.size() - 1);
+            if (match == null) {
+                return noMatches;
+            }
+            matches.add(match);
+        }
+        // Drive the intersection from the rarest term
+        matches.sort(Comparator.comparingInt(m -> m.estimatedDocs));
+
+        long minCents = minPrice == null ? Long.MIN_VALUE : minPrice.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : maxPrice.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+        long categoryFilter = categoryId == null ? NO_CATEGORY : categoryId;
+
+        Docs docs = s.docs;
+        Scratch sc = scratch.get();
+        sc.ensureCapacity(docs.capacity());
+        int hitCount = 0;
+        try {
+            hitCount = collect(matches.get(0), sc, s.liveDocs);
+            for (int m = 1; m < matches.size() && hitCount > 0; m++) {
+                hitCount = intersect(matches.get(m), sc, hitCount, s.liveDocs);
+            }
+            FacetCounts facets = withFacets
+                    ? countFacets(s, docs, sc, hitCount, categoryFilter, minCents, maxCents)
+                    : null;
+            hitCount = filter(docs, sc, hitCount, categoryFilter, minCents, maxCents);
+            return handler.handle(docs, sc, hitCount, facets);
+        } finally {
+            sc.reset(hitCount);
+        }
+    }
+
+    private TermMatch lookup(State s, String token, boolean prefix) {
+        List<Postings> postings = new ArrayList<>();
+        if (prefix) {
+            for (Postings p : s.terms.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                postings.add(p);
+                if (postings.size() == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+            }
+        } else {
+            Postings p = s.terms.get(token);
+            if (p != null) {
+                postings.add(p);
+            }
+        }
+        return postings.isEmpty() ? null : new TermMatch(postings.toArray(new Postings[0]));
+    }
+
+    private static float idf(Postings postings, int liveDocs) {
+        return (float) Math.log(1.0 + (double) Math.max(liveDocs, 1) / postings.docs.length);
+    }
+
+    private int collect(TermMatch match, Scratch sc, int liveDocs) {
+        int hitCount = 0;
+        for (Postings postings : match.postings) {
+            float idf = idf(postings, liveDocs);
+            for (int i = 0; i < postings.docs.length; i++) {
+                int doc = postings.docs[i];
+                if (doc >= sc.scores.length) {
+                    continue; // indexed after we sized the scratch buffers
+                }
+                if (sc.scores[doc] == 0f) {
+                    sc.hits[hitCount++] = doc;
+                }
+                sc.scores[doc] += postings.weights[i] * idf;
+            }
+        }
+        return hitCount;
+    }
+
+    private int intersect(TermMatch match, Scratch sc, int hitCount, int liveDocs) {
+        float[] idfs = new float[match.postings.length];
+        for (int p = 0; p < idfs.length; p++) {
+            idfs[p] = idf(match.postings[p], liveDocs);
+        }
+        int kept = 0;
+        for (int i = 0; i < hitCount; i++) {
+            int doc = sc.hits[i];
+            float score = 0f;
+            for (int p = 0; p < idfs.length; p++) {
+                score += match.postings[p].weightOf(doc) * idfs[p];
+            }
+            if (score > 0f) {
+                sc.scores[doc] += score;
+                sc.hits[kept++] = doc;
+            } else {
+                sc.scores[doc] = 0f;
+            }
+        }
+        return kept;
+    }
+
+    private int filter(Docs docs, Scratch sc, int hitCount, long categoryId, long minCents, long maxCents) {
+        int kept = 0;
+        for (int i = 0; i < hitCount; i++) {
+            int doc = sc.hits[i];
+            boolean keep = doc < docs.capacity()
+                    && docs.productIds[doc] != 0
+                    && (categoryId == NO_CATEGORY || docs.categoryIds[doc] == categoryId)
+                    && docs.priceCents[doc] >= minCents
+                    && docs.priceCents[doc] <= maxCents;
+            if (keep) {
+                sc.hits[kept++] = doc;
+            } else {
+                sc.scores[doc] = 0f;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Counts the text matches per category and price bucket. Each facet ignores its own filter:
+     * category counts are taken over the hits within the price range, price bucket counts over
+     * the hits in the selected category. Both hit sets go into scratch bitmaps in one pass, and
+     * each count is then a single AND + popcount against the facet's bitmap.
+     */
+    private FacetCounts countFacets(State s, Docs docs, Scratch sc, int hitCount,
+                                    long categoryId, long minCents, long maxCents) {
+        sc.ensureFacetCapacity(docs.capacity());
+        long[] inPriceRange = sc.inPriceRange;
+        long[] inCategory = sc.inCategory;
+        int fromWord = Integer.MAX_VALUE;
+        int toWord = -1;
+        for (int i = 0; i < hitCount; i++) {
+            int doc = sc.hits[i];
+            if (doc >= docs.capacity() || docs.productIds[doc] == 0) {
+                continue;
+            }
+            int word = doc >>> 6;
+            if (docs.priceCents[doc] >= minCents && docs.priceCents[doc] <= maxCents) {
+                inPriceRange[word] |= 1L << doc;
+            }
+            if (categoryId == NO_CATEGORY || docs.categoryIds[doc] == categoryId) {
+                inCategory[word] |= 1L << doc;
+            }
+            fromWord = Math.min(fromWord, word);
+            toWord = Math.max(toWord, word);
+        }
+
+        FacetCounts counts = new FacetCounts(s.priceBits.length);
+        if (toWord >= 0) {
+            for (Map.Entry<Long, DocBitmap> entry : s.categoryBits.entrySet()) {
+                int count = entry.getValue().andCardinality(inPriceRange, fromWord, toWord);
+                if (count > 0 && entry.getKey() != NO_CATEGORY) {
+                    counts.categories.put(entry.getKey(), count);
+                }
+            }
+            for (int bucket = 0; bucket < s.priceBits.length; bucket++) {
+                counts.priceBuckets[bucket] = s.priceBits[bucket].andCardinality(inCategory, fromWord, toWord);
+            }
+            Arrays.fill(inPriceRange, fromWord, toWord + 1, 0L);
+            Arrays.fill(inCategory, fromWord, toWord + 1, 0L);
+        }
+        return counts;
+    }
+
+    private SearchFacetsDTO toFacetsDTO(CatalogSnapshot snapshot, FacetCounts facets) {
+        List<CategoryFacetDTO> categories = new ArrayList<>();
+        List<PriceRangeFacetDTO> priceRanges = new ArrayList<>(priceBucketBoundsCents.length + 1);
+        if (facets != null) {
+            Map<Long, String> names = new HashMap<>();
+            snapshot.getCategories().forEach(category -> names.put(category.getId(), category.getName()));
+            facets.categories.forEach((id, count) -> categories.add(new CategoryFacetDTO(id, names.get(id), count)));
+            categories.sort(Comparator.comparingInt(CategoryFacetDTO::getCount).reversed()
+                    .thenComparing(CategoryFacetDTO::getCategoryId));
+        }
+        for (int bucket = 0; bucket <= priceBucketBoundsCents.length; bucket++) {
+            BigDecimal min = bucket == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(priceBucketBoundsCents[bucket - 1], 2);
+            BigDecimal max = bucket == priceBucketBoundsCents.length ? null : BigDecimal.valueOf(priceBucketBoundsCents[bucket], 2);
+            priceRanges.add(new PriceRangeFacetDTO(min, max, facets == null ? 0 : facets.priceBuckets[bucket]));
+        }
+        return new SearchFacetsDTO(categories, priceRanges);
+    }
+
+    private Page<ProductDTO> pageByRelevance(CatalogSnapshot snapshot, Docs docs, Scratch sc, int hitCount, Pageable pageable) {
+        // Pack (score desc, ordinal asc) into longs so a primitive sort does the ranking.
+        // Scores are positive, so their IEEE bits order the same way as the values.
+        long[] ranked = new long[hitCount];
+        for (int i = 0; i < hitCount; i++) {
+            int doc = sc.hits[i];
+            ranked[i] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits(sc.scores[doc])) << 32) | doc;
+        }
+        Arrays.sort(ranked);
+
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), hitCount) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), hitCount) : hitCount;
+        List<ProductDTO> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int doc = (int) ranked[i];
+            snapshot.getProduct(docs.productIds[doc]).ifPresent(content::add);
+        }
+        return new PageImpl<>(content, pageable, hitCount);
+    }
+
+    private Page<ProductDTO> pageByField(CatalogSnapshot snapshot, Docs docs, Scratch sc, int hitCount,
+                                         Comparator<ProductDTO> order, Pageable pageable) {
+        List<ProductDTO> matches = sortedMatches(snapshot, docs, sc, hitCount, order);
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), matches.size()) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), matches.size()) : matches.size();
+        return new PageImpl<>(new ArrayList<>(matches.subList(from, to)), pageable, matches.size());
+    }
+
+    private static List<ProductDTO> sortedMatches(CatalogSnapshot snapshot, Docs docs, Scratch sc, int hitCount,
+                                                  Comparator<ProductDTO> order) {
+        List<ProductDTO> matches = new ArrayList<>(hitCount);
+        for (int i = 0; i < hitCount; i++) {
+            snapshot.getProduct(docs.productIds[sc.hits[i]]).ifPresent(matches::add);
+        }
+        matches.sort(order);
+        return matches;
+    }
+
+    // --- Internal structures ---
+
+    /**
+     * One generation of the index. {@link #reload} builds a new one from scratch and
+     * {@link #update} a {@link #copy()} of the current one; either is only mutated before it is
+     * published, and read-only afterwards. Posting lists and the term arrays are immutable, so
+     * a copy shares them.
+     */
+    private static final class State {
+        final NavigableMap<String, Postings> terms;
+        final Map<Long, DocBitmap> categoryBits;
+        final DocBitmap[] priceBits;
+        Docs docs;
+        final Map<Long, Integer> ordinalsByProductId;
+        final Deque<Integer> freeOrdinals;
+        String[][] termsByOrdinal;
+        int nextOrdinal;
+        int liveDocs;
+
+        State(int priceBuckets) {
+            terms = new TreeMap<>();
+            categoryBits = new HashMap<>();
+            priceBits = new DocBitmap[priceBuckets];
+            for (int i = 0; i < priceBuckets; i++) {
+                priceBits[i] = new DocBitmap();
+            }
+            docs = new Docs(16);
+            ordinalsByProductId = new HashMap<>();
+            freeOrdinals = new ArrayDeque<>();
+            termsByOrdinal = new String[16][];
+        }
+
+        private State(State from) {
+            terms = new TreeMap<>(from.terms);
+            categoryBits = new HashMap<>(from.categoryBits.size() * 2);
+            from.categoryBits.forEach((id, bits) -> categoryBits.put(id, bits.copy()));
+            priceBits = new DocBitmap[from.priceBits.length];
+            for (int i = 0; i < priceBits.length; i++) {
+                priceBits[i] = from.priceBits[i].copy();
+            }
+            docs = from.docs.copy();
+            ordinalsByProductId = new HashMap<>(from.ordinalsByProductId);
+            freeOrdinals = new ArrayDeque<>(from.freeOrdinals);
+            termsByOrdinal = from.termsByOrdinal.clone();
+            nextOrdinal = from.nextOrdinal;
+            liveDocs = from.liveDocs;
+        }
+
+        State copy() {
+            return new State(this);
+        }
+
+        int allocateOrdinal(Long productId) {
+            int ordinal = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.pop();
+            if (ordinal >= docs.capacity()) {
+                docs = docs.grow(ordinal + 1);
+            }
+            if (ordinal >= termsByOrdinal.length) {
+                termsByOrdinal = Arrays.copyOf(termsByOrdinal, docs.capacity());
+            }
+            ordinalsByProductId.put(productId, ordinal);
+            return ordinal;
+        }
+    }
+
+    /**
+     * Per-ordinal product attributes needed for filtering, as primitive arrays.
+     */
+    private static final class Docs {
+        final long[] productIds;
+        final long[] categoryIds;
+        final long[] priceCents;
+
+        Docs(int capacity) {
+            productIds = new long[capacity];
+            categoryIds = new long[capacity];
+            priceCents = new long[capacity];
+        }
+
+        private Docs(long[] productIds, long[] categoryIds, long[] priceCents) {
+            this.productIds = productIds;
+            this.categoryIds = categoryIds;
+            this.priceCents = priceCents;
+        }
+
+        int capacity() {
+            return productIds.length;
+        }
+
+        Docs copy() {
+            return new Docs(productIds.clone(), categoryIds.clone(), priceCents.clone());
+        }
+
+        Docs grow(int minCapacity) {
+            int capacity = Math.max(minCapacity, capacity() + (capacity() >> 1));
+            return new Docs(Arrays.copyOf(productIds, capacity), Arrays.copyOf(categoryIds, capacity),
+                    Arrays.copyOf(priceCents, capacity));
+        }
+
+        void set(int ordinal, Product product) {
+            categoryIds[ordinal] = product.getCategory() == null ? NO_CATEGORY : product.getCategory().getId();
+            priceCents[ordinal] = product.getPrice().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+            productIds[ordinal] = product.getId();
+        }
+
+        void clear(int ordinal) {
+            productIds[ordinal] = 0L;
+        }
+    }
+
+    /**
+     * Immutable posting list, sorted by ordinal.
+     */
+    private static final class Postings {
+        final int[] docs;
+        final float[] weights;
+
+        Postings(int[] docs, float[] weights) {
+            this.docs = docs;
+            this.weights = weights;
+        }
+
+        float weightOf(int doc) {
+            int i = Arrays.binarySearch(docs, doc);
+            return i >= 0 ? weights[i] : 0f;
+        }
+
+        Postings with(int doc, float weight) {
+            int i = Arrays.binarySearch(docs, doc);
+            if (i >= 0) {
+                float[] w = weights.clone();
+                w[i] = weight;
+                return new Postings(docs, w);
+            }
+            int at = -i - 1;
+            int[] d = new int[docs.length + 1];
+            float[] w = new float[docs.length + 1];
+            System.arraycopy(docs, 0, d, 0, at);
+            System.arraycopy(weights, 0, w, 0, at);
+            d[at] = doc;
+            w[at] = weight;
+            System.arraycopy(docs, at, d, at + 1, docs.length - at);
+            System.arraycopy(weights, at, w, at + 1, docs.length - at);
+            return new Postings(d, w);
+        }
+
+        /**
+         * @return the list without {@code doc}, or null if nothing is left
+         */
+        Postings without(int doc) {
+            int i = Arrays.binarySearch(docs, doc);
+            if (i < 0) {
+                return this;
+            }
+            if (docs.length == 1) {
+                return null;
+            }
+            int[] d = new int[docs.length - 1];
+            float[] w = new float[docs.length - 1];
+            System.arraycopy(docs, 0, d, 0, i);
+            System.arraycopy(weights, 0, w, 0, i);
+            System.arraycopy(docs, i + 1, d, i, docs.length - i - 1);
+            System.arraycopy(weights, i + 1, w, i, docs.length - i - 1);
+            return new Postings(d, w);
+        }
+    }
+
+    private static final class PostingsBuilder {
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(docs, size), Arrays.copyOf(weights, size));
+        }
+    }
+
+    /**
+     * The posting lists a single query token expands to.
+     */
+    private static final class TermMatch {
+        final Postings[] postings;
+        final int estimatedDocs;
+
+        TermMatch(Postings[] postings) {
+            this.postings = postings;
+            int estimate = 0;
+            for (Postings p : postings) {
+                estimate += p.docs.length;
+            }
+            this.estimatedDocs = estimate;
+        }
+    }
+
+    /**
+     * Facet counts of one search: matches per category id and per price bucket.
+     */
+    private static final class FacetCounts {
+        final Map<Long, Integer> categories = new HashMap<>();
+        final int[] priceBuckets;
+
+        FacetCounts(int buckets) {
+            priceBuckets = new int[buckets];
+        }
+    }
+
+    /**
+     * Per-thread scoring buffers indexed by ordinal, reused across queries.
+     * Every slot touched by a query is zeroed again before the query returns.
+     */
+    private static final class Scratch {
+        float[] scores = new float[0];
+        int[] hits = new int[0];
+        long[] inPriceRange = new long[0];
+        long[] inCategory = new long[0];
+
+        void ensureCapacity(int capacity) {
+            if (scores.length < capacity) {
+                scores = new float[capacity];
+                hits = new int[capacity];
+            }
+        }
+
+        // Facet bitmaps are cleared by countFacets over the words it touched
+        void ensureFacetCapacity(int capacity) {
+            int words = (capacity + 63) >>> 6;
+            if (inPriceRange.length < words) {
+                inPriceRange = new long[words];
+                inCategory = new long[words];
+            }
+        }
+
+        void reset(int hitCount) {
+            for (int i = 0; i < hitCount; i++) {
+                scores[hits[i]] = 0f;
+            }
+        }
+    }
+}
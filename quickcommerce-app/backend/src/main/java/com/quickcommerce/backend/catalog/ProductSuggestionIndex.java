@@ -0,0 +1,492 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.model.Product;
+import com.quickcommerce.backend.repository.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Autocomplete over active product names, ranked by popularity (units sold).
+ *
+ * Every name is indexed under each of its word starts, so "milk" completes "Amul Milk 1L".
+ * The keys live in one sorted array, which is a flattened trie: all keys under a prefix are
+ * contiguous. The top completions of every prefix up to {@value #PRECOMPUTED_DEPTH} chars are
+ * precomputed, which covers the short, high-fan-out fragments; longer fragments binary-search
+ * their (small) key range and scan it. Lookups lower-case on the fly and rank into a per-thread
+ * buffer, so the only allocation per call is the result list.
+ *
+ * Catalog changes are applied incrementally: changed keys are merged into the sorted array and
+ * only the precomputed prefixes they fall under are recomputed.
+ */
+@Component
+@Slf4j
+public class ProductSuggestionIndex implements CatalogIndexer {
+
+    static final int PRECOMPUTED_DEPTH = 4;
+
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingLong((Entry e) -> e.popularity).reversed()
+            .thenComparing(e -> e.name)
+            .thenComparingLong(e -> e.productId);
+
+    private final OrderItemRepository orderItemRepository;
+    private final int limit;
+
+    private volatile Index index;
+    private volatile boolean ready;
+    private final ThreadLocal<Entry[]> rankBuffer;
+
+    // Writer-side state, only touched from the catalog snapshot thread
+    private final Map<Long, Entry> entriesByProductId = new HashMap<>();
+    private final Map<Long, Long> unitsSold = new HashMap<>();
+
+    public ProductSuggestionIndex(OrderItemRepository orderItemRepository,
+                                  @Value("${app.search.suggestions.limit:10}") int limit) {
+        this.orderItemRepository = orderItemRepository;
+        this.limit = limit;
+        this.index = Index.empty();
+        this.rankBuffer = ThreadLocal.withInitial(() -> new Entry[limit]);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // --- Lookup ---
+
+    /**
+     * Top completions for a fragment, most popular first, without duplicate names.
+     */
+    public List<String> suggest(String fragment) {
+        List<String> result = new ArrayList<>(limit);
+        int length = fragment.length();
+        if (length == 0) {
+            return result;
+        }
+        Index idx = index;
+        if (length <= PRECOMPUTED_DEPTH) {
+            Entry[] top = idx.tops[length - 1].get(pack(fragment, length));
+            if (top != null) {
+                for (Entry entry : top) {
+                    result.add(entry.name);
+                }
+            }
+            return result;
+        }
+
+        Entry[] buffer = rankBuffer.get();
+        int count = 0;
+        for (int i = lowerBound(idx.keys, fragment); i < idx.keys.length && comparePrefix(idx.keys[i], fragment) == 0; i++) {
+            count = offer(buffer, count, idx.keyEntries[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            result.add(buffer[i].name);
+            buffer[i] = null;
+        }
+        return result;
+    }
+
+    // --- Indexing ---
+
+    @Override
+    public synchronized void reload(Collection<Product> activeProducts) {
+        unitsSold.clear();
+        orderItemRepository.findUnitsSoldPerProduct()
+                .forEach(sales -> unitsSold.put(sales.getProductId(), sales.getUnitsSold()));
+
+        entriesByProductId.clear();
+        List<KeyRef> refs = new ArrayList<>();
+        for (Product product : activeProducts) {
+            Entry entry = toEntry(product);
+            entriesByProductId.put(entry.productId, entry);
+            for (String key : entry.keys) {
+                refs.add(new KeyRef(key, entry));
+            }
+        }
+        refs.sort(KeyRef.ORDER);
+
+        String[] keys = new String[refs.size()];
+        Entry[] keyEntries = new Entry[refs.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = refs.get(i).key;
+            keyEntries[i] = refs.get(i).entry;
+        }
+        PrefixTable[] tops = new PrefixTable[PRECOMPUTED_DEPTH];
+        for (int depth = 1; depth <= PRECOMPUTED_DEPTH; depth++) {
+            tops[depth - 1] = buildTops(keys, keyEntries, depth);
+        }
+        this.index = new Index(keys, keyEntries, tops);
+        this.ready = true;
+        log.info("Product suggestion index loaded: {} products, {} keys", entriesByProductId.size(), keys.length);
+    }
+
+    @Override
+    public synchronized void update(Collection<Product> changedProducts, Collection<Long> touchedIds) {
+        Set<Entry> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Long productId : touchedIds) {
+            Entry entry = entriesByProductId.remove(productId);
+            if (entry != null) {
+                removed.add(entry);
+            }
+        }
+        List<KeyRef> added = new ArrayList<>();
+        for (Product product : changedProducts) {
+            if (product.isActive()) {
+                Entry entry = toEntry(product);
+                entriesByProductId.put(entry.productId, entry);
+                for (String key : entry.keys) {
+                    added.add(new KeyRef(key, entry));
+                }
+            }
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        added.sort(KeyRef.ORDER);
+
+        Index old = index;
+        int removedKeys = 0;
+        for (Entry entry : removed) {
+            removedKeys += entry.keys.length;
+        }
+        String[] keys = new String[old.keys.length - removedKeys + added.size()];
+        Entry[] keyEntries = new Entry[keys.length];
+        // Linear merge of the surviving keys with the (sorted) new ones
+        int out = 0;
+        int a = 0;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (removed.contains(old.keyEntries[i])) {
+                continue;
+            }
+            while (a < added.size() && KeyRef.compare(added.get(a).key, added.get(a).entry, old.keys[i], old.keyEntries[i]) < 0) {
+                keys[out] = added.get(a).key;
+                keyEntries[out++] = added.get(a++).entry;
+            }
+            keys[out] = old.keys[i];
+            keyEntries[out++] = old.keyEntries[i];
+        }
+        while (a < added.size()) {
+            keys[out] = added.get(a).key;
+            keyEntries[out++] = added.get(a++).entry;
+        }
+
+        // Recompute only the precomputed prefixes the changed keys fall under
+        Map<String, List<Entry>> additionsByPrefix = new HashMap<>();
+        for (KeyRef ref : added) {
+            for (int depth = 1; depth <= Math.min(PRECOMPUTED_DEPTH, ref.key.length()); depth++) {
+                additionsByPrefix.computeIfAbsent(ref.key.substring(0, depth), p -> new ArrayList<>()).add(ref.entry);
+            }
+        }
+        Set<String> affected = new HashSet<>(additionsByPrefix.keySet());
+        for (Entry entry : removed) {
+            for (String key : entry.keys) {
+                for (int depth = 1; depth <= Math.min(PRECOMPUTED_DEPTH, key.length()); depth++) {
+                    affected.add(key.substring(0, depth));
+                }
+            }
+        }
+        PrefixTable[] tops = new PrefixTable[PRECOMPUTED_DEPTH];
+        for (int depth = 1; depth <= PRECOMPUTED_DEPTH; depth++) {
+            tops[depth - 1] = old.tops[depth - 1].copy();
+        }
+        Entry[] buffer = new Entry[limit];
+        for (String prefix : affected) {
+            PrefixTable table = tops[prefix.length() - 1];
+            long packed = pack(prefix, prefix.length());
+            Entry[] previous = table.get(packed);
+            boolean lostTopEntry = false;
+            if (previous != null) {
+                for (Entry entry : previous) {
+                    lostTopEntry |= removed.contains(entry);
+                }
+            }
+            int count = 0;
+            if (lostTopEntry) {
+                // A ranked entry went away; only a rescan can tell what replaces it
+                for (int i = lowerBound(keys, prefix); i < keys.length && comparePrefix(keys[i], prefix) == 0; i++) {
+                    count = offer(buffer, count, keyEntries[i]);
+                }
+            } else {
+                if (previous != null) {
+                    for (Entry entry : previous) {
+                        count = offer(buffer, count, entry);
+                    }
+                }
+                for (Entry entry : additionsByPrefix.getOrDefault(prefix, List.of())) {
+                    count = offer(buffer, count, entry);
+                }
+            }
+            table.put(packed, count == 0 ? null : Arrays.copyOf(buffer, count));
+            Arrays.fill(buffer, null);
+        }
+        this.index = new Index(keys, keyEntries, tops);
+    }
+
+    private Entry toEntry(Product product) {
+        return new Entry(product.getId(), product.getName(),
+                unitsSold.getOrDefault(product.getId(), 0L), wordStartKeys(product.getName()));
+    }
+
+    private PrefixTable buildTops(String[] keys, Entry[] keyEntries, int depth) {
+        PrefixTable table = new PrefixTable(keys.length / 4);
+        Entry[] buffer = new Entry[limit];
+        int i = 0;
+        while (i < keys.length) {
+            if (keys[i].length() < depth) {
+                i++;
+                continue;
+            }
+            long packed = pack(keys[i], depth);
+            int count = 0;
+            int j = i;
+            // Keys sharing the first `depth` chars are contiguous; shorter keys can't sit in between
+            while (j < keys.length && keys[j].length() >= depth && keys[j].regionMatches(0, keys[i], 0, depth)) {
+                count = offer(buffer, count, keyEntries[j]);
+                j++;
+            }
+            table.put(packed, Arrays.copyOf(buffer, count));
+            Arrays.fill(buffer, null);
+            i = j;
+        }
+        return table;
+    }
+
+    /**
+     * Inserts an entry into a ranked buffer of at most buffer.length entries with distinct names.
+     *
+     * @return the new number of entries in the buffer
+     */
+    private static int offer(Entry[] buffer, int count, Entry entry) {
+        for (int i = 0; i < count; i++) {
+            if (buffer[i] == entry) {
+                return count;
+            }
+            if (buffer[i].name.equals(entry.name)) {
+                if (BY_POPULARITY.compare(entry, buffer[i]) >= 0) {
+                    return count;
+                }
+                // Same name, better rank: drop the old one and re-insert below
+                System.arraycopy(buffer, i + 1, buffer, i, count - i - 1);
+                buffer[--count] = null;
+                break;
+            }
+        }
+        if (count == buffer.length && BY_POPULARITY.compare(entry, buffer[count - 1]) >= 0) {
+            return count;
+        }
+        int at = count == buffer.length ? count - 1 : count;
+        while (at > 0 && BY_POPULARITY.compare(entry, buffer[at - 1]) < 0) {
+            buffer[at] = buffer[at - 1];
+            at--;
+        }
+        buffer[at] = entry;
+        return Math.min(count + 1, buffer.length);
+    }
+
+    /**
+     * Lower-cased suffixes of the name starting at each word.
+     */
+    static String[] wordStartKeys(String name) {
+        String lower = lowerCase(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < lower.length(); i++) {
+            boolean wordStart = Character.isLetterOrDigit(lower.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(lower.charAt(i - 1)));
+            if (wordStart) {
+                keys.add(lower.substring(i));
+            }
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    // Char-by-char so that keys and on-the-fly lookups lower-case identically
+    private static String lowerCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static long pack(String s, int length) {
+        long packed = 0;
+        for (int i = 0; i < length; i++) {
+            packed = (packed << 16) | Character.toLowerCase(s.charAt(i));
+        }
+        return packed;
+    }
+
+    /**
+     * Compares a key with a fragment over the fragment's length, lower-casing the fragment as it goes.
+     * Zero means the key starts with the fragment.
+     */
+    private static int comparePrefix(String key, String fragment) {
+        int n = Math.min(key.length(), fragment.length());
+        for (int i = 0; i < n; i++) {
+            char k = key.charAt(i);
+            char f = Character.toLowerCase(fragment.charAt(i));
+            if (k != f) {
+                return k - f;
+            }
+        }
+        return key.length() < fragment.length() ? -1 : 0;
+    }
+
+    private static int lowerBound(String[] keys, String fragment) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(keys[mid], fragment) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // --- Internal structures ---
+
+    private static final class Entry {
+        final long productId;
+        final String name;
+        final long popularity;
+        final String[] keys;
+
+        Entry(long productId, String name, long popularity, String[] keys) {
+            this.productId = productId;
+            this.name = name;
+            this.popularity = popularity;
+            this.keys = keys;
+        }
+    }
+
+    private static final class KeyRef {
+        static final Comparator<KeyRef> ORDER = (x, y) -> compare(x.key, x.entry, y.key, y.entry);
+
+        final String key;
+        final Entry entry;
+
+        KeyRef(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        static int compare(String key1, Entry entry1, String key2, Entry entry2) {
+            int byKey = key1.compareTo(key2);
+            return byKey != 0 ? byKey : Long.compare(entry1.productId, entry2.productId);
+        }
+    }
+
+    /**
+     * Immutable once published: the sorted keys, their entries and the precomputed tops.
+     */
+    private static final class Index {
+        final String[] keys;
+        final Entry[] keyEntries;
+        final PrefixTable[] tops;
+
+        Index(String[] keys, Entry[] keyEntries, PrefixTable[] tops) {
+            this.keys = keys;
+            this.keyEntries = keyEntries;
+            this.tops = tops;
+        }
+
+        static Index empty() {
+            PrefixTable[] tops = new PrefixTable[PRECOMPUTED_DEPTH];
+            for (int i = 0; i < tops.length; i++) {
+                tops[i] = new PrefixTable(0);
+            }
+            return new Index(new String[0], new Entry[0], tops);
+        }
+    }
+
+    /**
+     * Open-addressing map from a packed prefix (up to four UTF-16 chars) to its ranked entries.
+     * Zero marks an empty slot, which no real prefix packs to.
+     */
+    private static final class PrefixTable {
+        private long[] keys;
+        private Entry[][] values;
+        private int size;
+
+        PrefixTable(int expectedSize) {
+            int capacity = 16;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            values = new Entry[capacity][];
+        }
+
+        private PrefixTable(long[] keys, Entry[][] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+
+        PrefixTable copy() {
+            return new PrefixTable(keys.clone(), values.clone(), size);
+        }
+
+        Entry[] get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Stores the ranked entries for a prefix; a null value leaves the slot in place but empty.
+         */
+        void put(long key, Entry[] value) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            Entry[][] oldValues = values;
+            keys = new long[capacity];
+            values = new Entry[capacity][];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
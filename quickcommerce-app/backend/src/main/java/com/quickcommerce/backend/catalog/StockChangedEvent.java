@@ -0,0 +1,28 @@
+package com.quickcommerce.backend.catalog;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published when only the stock of some products changed (reservations, releases, expired
+ * holds, hot stock write-behind).
+ *
+ * Kept apart from {@link CatalogChangedEvent}: stock moves with every checkout, and none of it
+ * changes what a listing contains or how it sorts. It is patched into the catalog snapshot and
+ * the change feed without bumping the catalog version or evicting any cache.
+ */
+@Getter
+public class StockChangedEvent {
+
+    private final Set<Long> productIds;
+
+    private StockChangedEvent(Set<Long> productIds) {
+        this.productIds = productIds;
+    }
+
+    public static StockChangedEvent forProducts(Collection<Long> productIds) {
+        return new StockChangedEvent(Set.copyOf(productIds));
+    }
+}
@@ -0,0 +1,28 @@
+package com.quickcommerce.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP caching for the catalog endpoints (products and categories).
+ *
+ * {@code cacheControl} maps Ant-style path patterns to a Cache-Control value; the most
+ * specific matching pattern wins, and {@code defaultCacheControl} applies otherwise.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.http.catalog-cache")
+public class CatalogHttpCacheProperties {
+
+    // Turns ETag / If-None-Match handling on or off
+    private boolean enabled = true;
+
+    // "no-cache" still lets clients store responses, but makes them revalidate with the ETag
+    private String defaultCacheControl = "no-cache";
+
+    private Map<String, String> cacheControl = new LinkedHashMap<>();
+}
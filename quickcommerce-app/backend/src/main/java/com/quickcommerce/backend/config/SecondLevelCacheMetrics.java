@@ -0,0 +1,60 @@
+package com.quickcommerce.backend.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+
+/**
+ * Exports every second-level cache region as {@code cache.*} meters (gets by hit/miss, puts,
+ * removals, evictions; tagged with the region as {@code cache}), plus a hit ratio gauge per
+ * region, {@code hibernate.cache.region.hit.ratio}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        RegionFactory regionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getCache()
+                .getRegionFactory();
+        if (!(regionFactory instanceof JCacheRegionFactory jCacheRegionFactory)) {
+            log.info("Second-level cache is not backed by JCache; no region metrics");
+            return;
+        }
+        CacheManager cacheManager = jCacheRegionFactory.getCacheManager();
+        for (String region : cacheManager.getCacheNames()) {
+            JCacheMetrics.monitor(registry, cacheManager.getCache(region), Tags.empty());
+            Gauge.builder("hibernate.cache.region.hit.ratio", registry, r -> hitRatio(r, region))
+                    .description("Share of second-level cache lookups answered from the region")
+                    .tag("cache", region)
+                    .register(registry);
+        }
+    }
+
+    private static double hitRatio(MeterRegistry registry, String region) {
+        double hits = count(registry, region, "hit");
+        double misses = count(registry, region, "miss");
+        return hits + misses == 0 ? Double.NaN : hits / (hits + misses);
+    }
+
+    private static double count(MeterRegistry registry, String region, String result) {
+        FunctionCounter counter = registry.find("cache.gets").tags("cache", region, "result", result).functionCounter();
+        return counter == null ? 0 : counter.count();
+    }
+}
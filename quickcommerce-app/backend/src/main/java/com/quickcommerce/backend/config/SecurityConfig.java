@@ -110,10 +110,12 @@ public class SecurityConfig {
                 .requestMatchers("/api/products/{productId}/reviews").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/products/{productId}/reviews").authenticated()
                 .requestMatchers("/api/cart/**").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/inventory/availability").permitAll()
                 .requestMatchers("/api/users/me").authenticated()
                 .requestMatchers("/api/addresses/**").authenticated()
                 .requestMatchers("/api/orders/**").authenticated()
                 .requestMatchers("/api/user/**").authenticated()
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated() 
             );
 
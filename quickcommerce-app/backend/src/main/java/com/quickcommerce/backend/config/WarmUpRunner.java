@@ -0,0 +1,316 @@
+package com.quickcommerce.backend.config;
+
+import com.quickcommerce.backend.catalog.CatalogSnapshot;
+import com.quickcommerce.backend.catalog.CatalogSnapshotCache;
+import com.quickcommerce.backend.dto.AddToCartRequest;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.model.User;
+import com.quickcommerce.backend.repository.OrderItemRepository;
+import com.quickcommerce.backend.repository.UserRepository;
+import com.quickcommerce.backend.security.CustomUserDetailsService;
+import com.quickcommerce.backend.security.JwtTokenProvider;
+import com.quickcommerce.backend.service.CartService;
+import com.quickcommerce.backend.service.ProductService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Warms the node up before it reports ready.
+ *
+ * Application runners finish before the readiness state flips to accepting traffic, so a
+ * load balancer following {@code /actuator/health/readiness} only sends requests once this
+ * is done: the connection pool is filled, the catalog snapshot is built, and a synthetic mix
+ * of catalog, cart and token requests has run often enough for the JIT to compile the hot
+ * paths and for the best sellers to be pinned in the hot product cache. The mix goes
+ * through the services directly, plus a loopback call so the security filter chain (and
+ * with it the JWT filter) is exercised too. Cart writes are rolled back, so the cart step
+ * only runs with the database cart store: the in-memory one persists carts from its own
+ * flusher, outside any transaction the warm-up could roll back.
+ *
+ * Warm-up never fails startup: anything that goes wrong is logged and the node comes up
+ * cold. Its duration and the latency of the first and the last rounds are logged and kept
+ * as gauges ({@code app.warmup.*}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WarmUpRunner implements ApplicationRunner {
+
+    // Averaged at the end of the warm-up, as the latency the node starts serving with
+    private static final int LAST_ROUNDS = 10;
+
+    private final DataSource dataSource;
+    private final CatalogSnapshotCache catalogSnapshotCache;
+    private final ProductService productService;
+    private final CartService cartService;
+    private final JwtTokenProvider tokenProvider;
+    private final CustomUserDetailsService userDetailsService;
+    private final UserRepository userRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.iterations:200}")
+    private int iterations;
+
+    @Value("${app.warmup.timeout-ms:60000}")
+    private long timeoutMs;
+
+    @Value("${app.warmup.hot-products:20}")
+    private int hotProducts;
+
+    @Value("${app.cart.store:database}")
+    private String cartStore;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            primeConnectionPool();
+            if (!catalogSnapshotCache.awaitSnapshot(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Warm-up: catalog snapshot not built within {} ms, serving from the database meanwhile", timeoutMs);
+            }
+            productService.getAllCategories();
+
+            Workload workload = prepareWorkload();
+            List<Long> roundNanos = new ArrayList<>(iterations);
+            for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+                long roundStart = System.nanoTime();
+                workload.runRound(i);
+                roundNanos.add(System.nanoTime() - roundStart);
+            }
+            report(start, roundNanos);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Warm-up interrupted after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception ex) {
+            log.warn("Warm-up failed after {} ms, starting cold", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), ex);
+        }
+    }
+
+    /**
+     * Opens every connection the pool may hold, all at once, so the first burst of traffic
+     * doesn't wait for connections to be established one by one.
+     */
+    private void primeConnectionPool() throws Exception {
+        int size = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 1;
+        ExecutorService executor = Executors.newFixedThreadPool(size);
+        try {
+            List<Future<?>> borrowed = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                borrowed.add(executor.submit(() -> {
+                    try (Connection connection = dataSource.getConnection();
+                         Statement statement = connection.createStatement()) {
+                        statement.execute("SELECT 1");
+                        // Held briefly so the other threads can't just reuse this connection
+                        Thread.sleep(50);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : borrowed) {
+                future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Warm-up: connection pool primed with {} connections", size);
+    }
+
+    private Workload prepareWorkload() {
+        List<ProductDTO> products = catalogSnapshotCache.getSnapshot()
+                .map(CatalogSnapshot::getProducts)
+                .map(List::copyOf)
+                .orElseGet(() -> productService.getAllActiveProducts(PageRequest.of(0, 100)).getContent());
+
+        // Best sellers are what real traffic looks at first, and what gets pinned as hot
+        List<Long> warmIds = orderItemRepository.findUnitsSoldPerProduct().stream()
+                .sorted(Comparator.comparing(OrderItemRepository.ProductSales::getUnitsSold,
+                        Comparator.nullsFirst(Comparator.naturalOrder())).reversed())
+                .map(OrderItemRepository.ProductSales::getProductId)
+                .limit(hotProducts)
+                .toList();
+        if (warmIds.isEmpty()) {
+            warmIds = products.stream().map(ProductDTO::getId).limit(hotProducts).toList();
+        }
+        // A write-behind cart would outlive the rolled back transaction
+        Long cartProductId = !"database".equals(cartStore) ? null : products.stream()
+                .filter(product -> product.getStockQuantity() > 0)
+                .map(ProductDTO::getId)
+                .findFirst()
+                .orElse(null);
+        String searchTerm = products.stream()
+                .map(ProductDTO::getName)
+                .filter(name -> name != null && !name.isBlank())
+                .map(name -> name.trim().split("\\s+")[0])
+                .findFirst()
+                .orElse("a");
+
+        Optional<User> user = userRepository.findAll(PageRequest.of(0, 1)).stream().findFirst();
+        String token = tokenProvider.generateToken(user.map(User::getEmail).orElse("warmup@localhost"));
+        return new Workload(warmIds, cartProductId, searchTerm, user.isPresent(), token, loopbackClient());
+    }
+
+    private Optional<HttpClient> loopbackClient() {
+        if (environment.getProperty("local.server.port") == null) {
+            return Optional.empty();
+        }
+        return Optional.of(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build());
+    }
+
+    private void report(long start, List<Long> roundNanos) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (roundNanos.isEmpty()) {
+            log.warn("Warm-up: no synthetic requests ran within {} ms", timeoutMs);
+            return;
+        }
+        double firstMs = roundNanos.get(0) / 1e6;
+        double lastMs = roundNanos.subList(Math.max(0, roundNanos.size() - LAST_ROUNDS), roundNanos.size()).stream()
+                .mapToLong(Long::longValue)
+                .average()
+                .orElse(0) / 1e6;
+
+        registerGauge("app.warmup.duration", "Time spent warming up before reporting ready, in ms", null, durationMs);
+        registerGauge("app.warmup.request.latency", "Latency of one round of synthetic requests, in ms", "first", firstMs);
+        registerGauge("app.warmup.request.latency", "Latency of one round of synthetic requests, in ms", "last", lastMs);
+        log.info("Warm-up done in {} ms ({} rounds): round latency {} ms at first, {} ms at the end",
+                durationMs, roundNanos.size(), String.format("%.2f", firstMs), String.format("%.2f", lastMs));
+    }
+
+    private void registerGauge(String name, String description, String phase, double value) {
+        Gauge.Builder<Supplier<Number>> gauge = Gauge.builder(name, () -> value).description(description).baseUnit("ms");
+        if (phase != null) {
+            gauge.tag("phase", phase);
+        }
+        gauge.register(meterRegistry);
+    }
+
+    /**
+     * One round of synthetic requests, roughly in the proportions a storefront sends them.
+     * Each call is isolated so that a failing one (an empty catalog, a product that sold
+     * out meanwhile) doesn't stop the others from warming up.
+     */
+    private final class Workload {
+
+        private final List<Long> warmIds;
+        private final Long cartProductId;
+        private final String searchTerm;
+        private final boolean realUser;
+        private final String token;
+        private final Optional<HttpClient> http;
+        private final TransactionTemplate rollbackOnly;
+
+        private Workload(List<Long> warmIds, Long cartProductId, String searchTerm, boolean realUser, String token,
+                         Optional<HttpClient> http) {
+            this.warmIds = warmIds;
+            this.cartProductId = cartProductId;
+            this.searchTerm = searchTerm;
+            this.realUser = realUser;
+            this.token = token;
+            this.http = http;
+            this.rollbackOnly = new TransactionTemplate(transactionManager);
+        }
+
+        void runRound(int round) {
+            attempt(() -> productService.getAllActiveProducts(PageRequest.of(round % 5, 20)));
+            attempt(() -> productService.searchProducts(searchTerm, null, null, BigDecimal.valueOf(1000), PageRequest.of(0, 20)));
+            attempt(() -> productService.getProductSuggestions(searchTerm.substring(0, Math.min(3, searchTerm.length()))));
+            for (Long id : warmIds) {
+                attempt(() -> productService.getProductById(id));
+            }
+            if (!warmIds.isEmpty()) {
+                attempt(() -> productService.getProductsByIds(warmIds));
+            }
+            attempt(this::cartRoundTrip);
+            attempt(this::authenticate);
+            http.ifPresent(client -> attempt(() -> loopback(client)));
+        }
+
+        private void cartRoundTrip() {
+            if (cartProductId == null) {
+                return;
+            }
+            rollbackOnly.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                String sessionId = "warmup-" + UUID.randomUUID();
+                cartService.addToCart(null, sessionId, new AddToCartRequest(cartProductId, 1));
+                cartService.getCart(null, sessionId, true);
+            });
+        }
+
+        // What the JWT filter does for every authenticated request
+        private void authenticate() {
+            if (tokenProvider.validateToken(token)) {
+                String username = tokenProvider.getUsernameFromJWT(token);
+                if (realUser) {
+                    userDetailsService.loadUserByUsername(username);
+                }
+            }
+        }
+
+        private void loopback(HttpClient client) throws Exception {
+            HttpRequest.Builder request = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + environment.getProperty("local.server.port") + "/api/categories"))
+                    .timeout(Duration.ofSeconds(5));
+            // Without a user to resolve the filter would log an error for every round
+            if (realUser) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        }
+
+        private void attempt(Step step) {
+            try {
+                step.run();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                log.debug("Warm-up request failed: {}", ex.getMessage());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,23 @@
+package com.quickcommerce.backend.config;
+
+import com.quickcommerce.backend.catalog.CatalogETagInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CatalogETagInterceptor catalogETagInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Catalog reads carry an ETag from the catalog snapshot; reviews and related products change
+        // independently of it, and the live change feed is a stream
+        registry.addInterceptor(catalogETagInterceptor)
+                .addPathPatterns("/api/products/**", "/api/categories/**")
+                .excludePathPatterns("/api/products/*/reviews", "/api/products/*/related", "/api/products/changes");
+    }
+}
@@ -0,0 +1,50 @@
+package com.quickcommerce.backend.controller;
+
+import com.quickcommerce.backend.catalog.HotProductCache;
+import com.quickcommerce.backend.dto.HotProductDTO;
+import com.quickcommerce.backend.service.CatalogImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/catalog")
+@Slf4j
+public class AdminCatalogController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private HotProductCache hotProductCache;
+
+    // The products getting the most detail views right now, most viewed first
+    @GetMapping("/hot-products")
+    public ResponseEntity<List<HotProductDTO>> getHotProducts() {
+        return ResponseEntity.ok(hotProductCache.getHotProducts());
+    }
+
+    // Bulk product import. The body is CSV (with a header row) or NDJSON, one product per record,
+    // upserted on sku. Progress, rejected rows and a final summary stream back as NDJSON.
+    @PostMapping(value = "/import", consumes = {"text/csv", NDJSON}, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> importProducts(
+            @RequestHeader("Content-Type") String contentType,
+            InputStream body) {
+        CatalogImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? CatalogImportService.Format.CSV
+                : CatalogImportService.Format.NDJSON;
+        log.info("Starting {} catalog import", format);
+        StreamingResponseBody stream = out -> catalogImportService.importProducts(body, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(stream);
+    }
+}
@@ -3,6 +3,7 @@ package com.quickcommerce.backend.controller;
 import com.quickcommerce.backend.dto.AddToCartRequest;
 import com.quickcommerce.backend.dto.CartDTO;
 import com.quickcommerce.backend.dto.UpdateCartItemRequest;
+import com.quickcommerce.backend.dto.UpdateCartItemsRequest;
 import com.quickcommerce.backend.model.User;
 import com.quickcommerce.backend.security.CurrentUser;
 import com.quickcommerce.backend.service.CartService;
@@ -30,10 +31,14 @@ public class CartController {
     private static final String SESSION_ID_COOKIE = "qc_session_id";
     
     /**
-     * Get current cart contents
+     * Get current cart contents; with availability=true each line is flagged as in stock or not
      */
     @GetMapping
-    public ResponseEntity<CartDTO> getCart(@CurrentUser User user, HttpServletRequest request, HttpServletResponse response) {
+    public ResponseEntity<CartDTO> getCart(
+            @CurrentUser User user,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @RequestParam(defaultValue = "false") boolean availability) {
         // Debug logging
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         log.info("Authentication: {}", auth);
@@ -44,7 +49,7 @@ public class CartController {
         
         log.info("getCart called with user: {}", user);
         String sessionId = getOrCreateSessionId(request, response, user);
-        return ResponseEntity.ok(cartService.getCart(user, sessionId));
+        return ResponseEntity.ok(cartService.getCart(user, sessionId, availability));
     }
     
     /**
@@ -79,6 +84,21 @@ public class CartController {
         return ResponseEntity.ok(cartService.updateCartItem(user, sessionId, itemId, updateRequest));
     }
     
+    /**
+     * Apply several line changes (add/set/remove) in one request, e.g. a burst of quantity
+     * stepper clicks; the cart is returned once, after all of them
+     */
+    @PatchMapping("/items")
+    public ResponseEntity<CartDTO> updateCartItems(
+            @CurrentUser User user,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @Valid @RequestBody UpdateCartItemsRequest updateRequest) {
+        
+        String sessionId = getOrCreateSessionId(request, response, user);
+        return ResponseEntity.ok(cartService.updateCartItems(user, sessionId, updateRequest.getOperations()));
+    }
+    
     /**
      * Remove item from cart
      */
@@ -0,0 +1,50 @@
+package com.quickcommerce.backend.controller;
+
+import com.quickcommerce.backend.dto.StockAvailabilityDTO;
+import com.quickcommerce.backend.dto.StockAvailabilityRequest;
+import com.quickcommerce.backend.exception.BadRequestException;
+import com.quickcommerce.backend.service.InventoryService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/inventory")
+@RequiredArgsConstructor
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    @Value("${app.inventory.availability.max-items:100}")
+    private int maxItems;
+
+    /**
+     * Check stock for a batch of products and quantities, e.g. every line of a cart before checkout.
+     * Results come back in request order.
+     */
+    @PostMapping("/availability")
+    public ResponseEntity<List<StockAvailabilityDTO>> checkAvailability(@Valid @RequestBody StockAvailabilityRequest request) {
+        List<StockAvailabilityRequest.Item> items = request.getItems();
+        if (items.size() > maxItems) {
+            throw new BadRequestException("At most " + maxItems + " items can be checked at once");
+        }
+        Map<Long, Integer> stock = inventoryService.getAvailableStock(items.stream()
+                .map(StockAvailabilityRequest.Item::getProductId)
+                .collect(Collectors.toSet()));
+
+        List<StockAvailabilityDTO> result = new ArrayList<>(items.size());
+        for (StockAvailabilityRequest.Item item : items) {
+            int available = stock.getOrDefault(item.getProductId(), 0);
+            result.add(new StockAvailabilityDTO(item.getProductId(), item.getQuantity(), available,
+                    available >= item.getQuantity()));
+        }
+        return ResponseEntity.ok(result);
+    }
+}
@@ -1,6 +1,7 @@
 package com.quickcommerce.backend.controller;
 
 import com.quickcommerce.backend.dto.CartDTO;
+import com.quickcommerce.backend.dto.CheckoutQuoteDTO;
 import com.quickcommerce.backend.dto.CreateOrderRequest;
 import com.quickcommerce.backend.dto.OrderDTO;
 import com.quickcommerce.backend.model.Order.OrderStatus;
@@ -46,6 +47,15 @@ public class OrderController {
         }
     }
     
+    /**
+     * Reprice the cart against current catalog prices before placing the order. If anything
+     * changed, pass the returned quoteToken with the order to accept the new prices.
+     */
+    @GetMapping("/quote")
+    public ResponseEntity<CheckoutQuoteDTO> quoteCheckout(@CurrentUser User user) {
+        return ResponseEntity.ok(orderService.quoteCheckout(user));
+    }
+    
     /**
      * Get user's order history
      */
@@ -1,13 +1,21 @@
 package com.quickcommerce.backend.controller;
 
+import com.quickcommerce.backend.catalog.ProductChangeBus;
+import com.quickcommerce.backend.dto.CursorPageDTO;
 import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.dto.ProductDeltaDTO;
 import com.quickcommerce.backend.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -19,6 +27,12 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductChangeBus productChangeBus;
+
+    @Value("${app.catalog.changes.timeout-ms:1800000}")
+    private long changesTimeoutMs;
+
     // Get all active products (paginated) or filter by category
     @GetMapping
     public ResponseEntity<Page<ProductDTO>> getActiveProducts(
@@ -34,6 +48,54 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    // Keyset variant, selected by the presence of ?after= (empty for the first page).
+    // Returns a cursor for the next page instead of page numbers and a total count.
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> getActiveProductsAfter(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam("after") String after,
+            @PageableDefault(size = 20, sort = "name") Pageable pageable) {
+        return ResponseEntity.ok(productService.getActiveProductsAfter(categoryId, after, pageable));
+    }
+
+    // Get several products in one call (?ids=1,2,3), in request order; unknown ids are skipped.
+    // A request that also has ?after= is a keyset listing, so the two mappings never both match
+    @GetMapping(params = {"ids", "!after"})
+    public ResponseEntity<List<ProductDTO>> getProductsByIds(@RequestParam("ids") List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    // Live price and stock changes of ?ids=1,2,3 as Server-Sent Events. Each "changes" event holds
+    // the latest values of the products that changed; a "resync" event before it carries the number
+    // of changes dropped because the client fell behind, so it should refetch those products.
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam("ids") List<Long> ids) {
+        SseEmitter emitter = new SseEmitter(changesTimeoutMs);
+        ProductChangeBus.Subscription subscription = productChangeBus.subscribe(ids, new ProductChangeBus.Sink() {
+            @Override
+            public void deliver(List<ProductDeltaDTO> changes, int dropped) throws IOException {
+                if (dropped > 0) {
+                    emitter.send(SseEmitter.event().name("resync").data(dropped));
+                }
+                emitter.send(SseEmitter.event().name("changes").data(changes, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void keepAlive() throws IOException {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(ex -> subscription.close());
+        return emitter;
+    }
+
     // Get a single product by ID
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
@@ -41,19 +103,41 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    // Products frequently bought together with this one (?limit=, default 10)
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<ProductDTO>> getRelatedProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.getRelatedProducts(id, limit));
+    }
+
     // Search for active products by name or description (paginated), optionally filter by category
+    // Results are ranked by relevance unless an explicit sort (name, price, id) is requested
+    // Once the search index is loaded the page also carries category and price range facet counts
     @GetMapping("/search")
     public ResponseEntity<Page<ProductDTO>> searchProducts(
             @RequestParam("q") String query,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
-            @PageableDefault(size = 20, sort = "name") Pageable pageable) {
+            @PageableDefault(size = 20) Pageable pageable) {
         
         Page<ProductDTO> products = productService.searchProducts(query, categoryId, minPrice, maxPrice, pageable);
         return ResponseEntity.ok(products);
     }
 
+    // Keyset variant of search; sorted by name unless an explicit sort (name, price, id) is requested
+    @GetMapping(value = "/search", params = "after")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> searchProductsAfter(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam("after") String after,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return ResponseEntity.ok(productService.searchProductsAfter(query, categoryId, minPrice, maxPrice, after, pageable));
+    }
+
     // Get product name suggestions based on query fragment
     @GetMapping("/suggestions")
     public ResponseEntity<List<String>> getSuggestions(
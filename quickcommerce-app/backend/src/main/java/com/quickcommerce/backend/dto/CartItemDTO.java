@@ -1,5 +1,6 @@
 package com.quickcommerce.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,4 +20,7 @@ public class CartItemDTO {
     private BigDecimal price;
     private Integer quantity;
     private BigDecimal subtotal;
+    // Whether the line's quantity is in stock; only set when the cart was fetched with availability
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean available;
 } 
\ No newline at end of file
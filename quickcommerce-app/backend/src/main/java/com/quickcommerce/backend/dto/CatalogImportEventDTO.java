@@ -0,0 +1,39 @@
+package com.quickcommerce.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One line of the NDJSON stream a catalog import reports back:
+ * {@code rejected} for a row that was skipped, {@code progress} after every batch,
+ * and a final {@code summary} (or {@code failed} if the import was aborted).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CatalogImportEventDTO {
+    private String type;
+    private Long line; // rejected rows: line (CSV) or record number (NDJSON) in the upload
+    private String sku;
+    private List<String> errors;
+    private Long rowsRead;
+    private Long imported;
+    private Long rejected;
+
+    public static CatalogImportEventDTO rejected(long line, String sku, List<String> errors) {
+        return new CatalogImportEventDTO("rejected", line, sku, errors, null, null, null);
+    }
+
+    public static CatalogImportEventDTO progress(String type, long rowsRead, long imported, long rejected) {
+        return new CatalogImportEventDTO(type, null, null, null, rowsRead, imported, rejected);
+    }
+
+    public static CatalogImportEventDTO failed(String error, long rowsRead, long imported, long rejected) {
+        return new CatalogImportEventDTO("failed", null, null, List.of(error), rowsRead, imported, rejected);
+    }
+}
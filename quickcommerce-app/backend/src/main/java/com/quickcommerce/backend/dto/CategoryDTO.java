@@ -1,5 +1,6 @@
 package com.quickcommerce.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,4 +13,10 @@ public class CategoryDTO {
     private String name;
     // Add description if needed by frontend
     // private String description;
-} 
\ No newline at end of file
+    @JsonInclude(JsonInclude.Include.NON_NULL) // Only set on the category list, not on nested product categories
+    private Integer productCount;
+
+    public CategoryDTO(Long id, String name) {
+        this(id, name, null);
+    }
+}
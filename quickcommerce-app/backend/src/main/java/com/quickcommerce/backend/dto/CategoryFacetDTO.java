@@ -0,0 +1,14 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryFacetDTO {
+    private Long categoryId;
+    private String name;
+    private int count;
+}
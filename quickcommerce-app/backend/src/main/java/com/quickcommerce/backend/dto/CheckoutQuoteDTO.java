@@ -0,0 +1,29 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The cart repriced against the current catalog, as the order would be placed now.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutQuoteDTO {
+    private List<CheckoutQuoteLineDTO> items;
+    private BigDecimal cartSubtotal; // at the prices captured in the cart
+    private BigDecimal subtotal;
+    private BigDecimal tax;
+    private BigDecimal shippingCost;
+    private BigDecimal total;
+    // Some line was repriced or is no longer sold
+    private boolean changed;
+    // Pass back in CreateOrderRequest.quoteToken to accept these prices
+    private String quoteToken;
+}
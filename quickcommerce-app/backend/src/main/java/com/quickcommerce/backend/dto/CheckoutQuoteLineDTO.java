@@ -0,0 +1,23 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutQuoteLineDTO {
+    private Long productId;
+    private String productName;
+    private Integer quantity;
+    private BigDecimal cartPrice; // price captured when the item was added to the cart
+    private BigDecimal currentPrice; // null if the product is no longer sold
+    private BigDecimal subtotal; // at the current price
+    private boolean priceChanged;
+    private boolean unavailable;
+}
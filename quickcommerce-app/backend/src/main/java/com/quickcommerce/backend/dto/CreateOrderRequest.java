@@ -31,4 +31,6 @@ public class CreateOrderRequest {
     private String deliveryInstructions;
     
     private String promoCode; // Optional promo code
+    
+    private String quoteToken; // From GET /api/orders/quote; accepts its repriced totals
 } 
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. There is no total count; pass
+ * {@code nextCursor} as {@code ?after=} to fetch the following page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor; // null on the last page
+    private boolean hasNext;
+}
@@ -0,0 +1,23 @@
+package com.quickcommerce.backend.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A search results page with facet counts alongside the usual page fields.
+ */
+public class FacetedPageDTO<T> extends PageImpl<T> {
+
+    private final SearchFacetsDTO facets;
+
+    public FacetedPageDTO(List<T> content, Pageable pageable, long total, SearchFacetsDTO facets) {
+        super(content, pageable, total);
+        this.facets = facets;
+    }
+
+    public SearchFacetsDTO getFacets() {
+        return facets;
+    }
+}
@@ -0,0 +1,14 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotProductDTO {
+    private Long productId;
+    private long estimatedViews; // decayed count from the heavy-hitters sketch, may overestimate
+    private boolean pinned; // currently served from the hot product cache
+}
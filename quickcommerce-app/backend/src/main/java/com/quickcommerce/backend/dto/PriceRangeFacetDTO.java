@@ -0,0 +1,16 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceRangeFacetDTO {
+    private BigDecimal min; // inclusive
+    private BigDecimal max; // exclusive; null for the open-ended top bucket
+    private int count;
+}
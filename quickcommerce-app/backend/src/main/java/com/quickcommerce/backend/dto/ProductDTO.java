@@ -1,5 +1,6 @@
 package com.quickcommerce.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,10 +13,18 @@ import java.math.BigDecimal;
 public class ProductDTO {
     private Long id;
     private String name;
+    @JsonInclude(JsonInclude.Include.NON_NULL) // Left out of list views
     private String description;
     private BigDecimal price;
     private int stockQuantity;
     private String imageUrl;
     private CategoryDTO category;
     private boolean active;
-} 
\ No newline at end of file
+
+    // Lightweight list variant without the description, used by JPQL constructor projections
+    public ProductDTO(Long id, String name, BigDecimal price, int stockQuantity, String imageUrl,
+                      Long categoryId, String categoryName, boolean active) {
+        this(id, name, null, price, stockQuantity, imageUrl,
+                categoryId != null ? new CategoryDTO(categoryId, categoryName) : null, active);
+    }
+} 
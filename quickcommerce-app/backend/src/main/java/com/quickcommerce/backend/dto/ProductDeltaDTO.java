@@ -0,0 +1,21 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Latest price and stock of a product, pushed to live change feed subscribers.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDeltaDTO {
+    private Long productId;
+    private BigDecimal price; // null once the product is no longer sold
+    private Integer stockQuantity;
+    private boolean available; // active and in stock
+    private long version; // catalog snapshot revision the values were taken from; grows with stock changes too
+}
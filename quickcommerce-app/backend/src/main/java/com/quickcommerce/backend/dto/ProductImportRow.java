@@ -0,0 +1,48 @@
+package com.quickcommerce.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One product row of a bulk catalog import (a CSV record or an NDJSON line).
+ * Constraints mirror the {@code Product} entity; {@code sku} is the natural key rows are upserted on.
+ * Only {@code sku}, {@code name} and {@code price} are required: optional fields left out (null) keep
+ * their current values when the SKU already exists, and take the column defaults when it doesn't.
+ * {@code stockQuantity} is the count on hand; stock held for unpaid orders is taken off it on import.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductImportRow {
+
+    @NotBlank
+    @Size(max = 64)
+    private String sku;
+
+    @NotBlank
+    @Size(max = 200)
+    private String name;
+
+    private String description;
+
+    @NotNull
+    @DecimalMin(value = "0.0", inclusive = false)
+    @Digits(integer = 8, fraction = 2)
+    private BigDecimal price;
+
+    @Min(0)
+    private Integer stockQuantity;
+
+    @Size(max = 255)
+    private String imageUrl;
+
+    // Either one identifies the category; the id wins if both are given
+    private Long categoryId;
+    private String category;
+
+    private Boolean active;
+}
@@ -0,0 +1,20 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Facet counts for a search. Category counts honour the price filter but not the category
+ * filter, and price range counts the other way round, so each facet shows what selecting
+ * a different value would return.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFacetsDTO {
+    private List<CategoryFacetDTO> categories; // most matches first
+    private List<PriceRangeFacetDTO> priceRanges; // ascending, including empty ranges
+}
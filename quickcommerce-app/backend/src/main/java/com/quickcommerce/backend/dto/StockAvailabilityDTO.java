@@ -0,0 +1,16 @@
+package com.quickcommerce.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAvailabilityDTO {
+    private Long productId;
+    private Integer requestedQuantity;
+    // 0 for products that don't exist or are no longer sold
+    private Integer availableQuantity;
+    private boolean available;
+}
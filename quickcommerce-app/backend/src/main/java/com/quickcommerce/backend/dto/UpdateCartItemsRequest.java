@@ -0,0 +1,46 @@
+package com.quickcommerce.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Several cart line changes applied at once, in order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UpdateCartItemsRequest {
+
+    @NotEmpty(message = "At least one operation is required")
+    private List<@Valid Operation> operations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+
+        /**
+         * ADD adds {@code quantity} to the line (creating it at the current price), SET makes
+         * it the line's quantity (0 removes the line), REMOVE removes the line if it's there.
+         */
+        public enum Type {
+            ADD, SET, REMOVE
+        }
+
+        @NotNull(message = "Operation is required")
+        private Type op;
+
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+
+        @Min(value = 0, message = "Quantity can't be negative")
+        private Integer quantity;
+    }
+}
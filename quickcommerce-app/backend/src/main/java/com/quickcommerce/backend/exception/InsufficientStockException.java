@@ -0,0 +1,19 @@
+package com.quickcommerce.backend.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when stock can't be reserved for an order line.
+ */
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long productId;
+    private final int requested;
+
+    public InsufficientStockException(Long productId, int requested) {
+        super("Insufficient stock for product " + productId + " (requested " + requested + ")");
+        this.productId = productId;
+        this.requested = requested;
+    }
+}
@@ -0,0 +1,19 @@
+package com.quickcommerce.backend.exception;
+
+import com.quickcommerce.backend.dto.CheckoutQuoteDTO;
+import lombok.Getter;
+
+/**
+ * Thrown when cart prices no longer match the catalog and the customer hasn't accepted the
+ * new ones yet. Carries the fresh quote to confirm.
+ */
+@Getter
+public class PriceChangedException extends RuntimeException {
+
+    private final CheckoutQuoteDTO quote;
+
+    public PriceChangedException(CheckoutQuoteDTO quote) {
+        super("Prices in the cart have changed; confirm the new quote to place the order");
+        this.quote = quote;
+    }
+}
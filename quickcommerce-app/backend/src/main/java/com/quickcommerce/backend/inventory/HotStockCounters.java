@@ -0,0 +1,151 @@
+package com.quickcommerce.backend.inventory;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stock for products flagged as hot ({@code app.inventory.hot-stock.product-ids}),
+ * e.g. flash sale items that would otherwise have every checkout queue on their
+ * {@code products} row.
+ *
+ * While a product is hot its counter is the gate for reservations, and
+ * {@code products.stock_quantity} trails behind: reservations taken from a counter are
+ * written with {@code stock_applied = false}, and the inventory service folds them into the
+ * row in periodic batches. Since those reservation rows commit together with their orders,
+ * a crash loses nothing; on startup each counter is rebuilt as the row's stock minus the
+ * live reservations not yet applied to it.
+ *
+ * Stock of hot products must not be edited behind the app's back while it's running
+ * (imports, manual SQL): the counters only pick that up on the next restart.
+ *
+ * Hot stock only works in a single-instance deployment. Each counter holds all of a product's
+ * available stock, so a second instance with its own counters could sell it all again, and
+ * one reserving straight against the rows doesn't see holds that aren't applied yet. An
+ * instance enabling it takes a Postgres advisory lock and keeps it for as long as it runs;
+ * if another instance already holds it, startup fails rather than oversell.
+ */
+@Component
+@Slf4j
+public class HotStockCounters {
+
+    private static final String AVAILABLE_SQL =
+            "SELECT p.id, p.stock_quantity - COALESCE(SUM(r.quantity), 0) " +
+            "FROM products p " +
+            "LEFT JOIN inventory_reservations r ON r.product_id = p.id " +
+            "  AND NOT r.stock_applied AND r.status IN ('HELD', 'COMMITTED') " +
+            "WHERE p.id = ANY (?) " +
+            "GROUP BY p.id, p.stock_quantity";
+
+    // Held by the one instance running hot stock counters
+    private static final long SINGLE_INSTANCE_LOCK = 0x486f7453746f636bL; // "HotStock"
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final List<Long> productIds;
+    private final int stripes;
+
+    private volatile Map<Long, StripedStockCounter> counters = Collections.emptyMap();
+    // Session-level advisory locks belong to the connection, so it's kept out of the pool
+    private Connection lockConnection;
+
+    public HotStockCounters(JdbcTemplate jdbcTemplate,
+                            DataSource dataSource,
+                            @Value("${app.inventory.hot-stock.enabled:false}") boolean enabled,
+                            @Value("${app.inventory.hot-stock.product-ids:}") List<Long> productIds,
+                            @Value("${app.inventory.hot-stock.stripes:0}") int stripes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.productIds = productIds;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Loads the counters once the schema is migrated. Until then flagged products are
+     * reserved the regular way, straight against their rows.
+     *
+     * @throws IllegalStateException if another instance runs hot stock counters
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        if (!lockSingleInstance()) {
+            throw new IllegalStateException("Hot stock counters are already running on another instance; "
+                    + "app.inventory.hot-stock.enabled requires a single-instance deployment");
+        }
+        Map<Long, StripedStockCounter> loaded = new ConcurrentHashMap<>();
+        jdbcTemplate.query(AVAILABLE_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds.toArray())),
+                rs -> {
+                    long available = Math.max(0, rs.getLong(2));
+                    loaded.put(rs.getLong(1), new StripedStockCounter(available, stripes));
+                });
+        counters = loaded;
+        log.info("Hot stock counters loaded for {} products ({} stripes each)", loaded.size(), stripes);
+    }
+
+    private boolean lockSingleInstance() {
+        try {
+            Connection connection = dataSource.getConnection();
+            try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                ps.setLong(1, SINGLE_INSTANCE_LOCK);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        lockConnection = connection;
+                        return true;
+                    }
+                }
+            }
+            connection.close();
+            return false;
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not take the hot stock single-instance lock", ex);
+        }
+    }
+
+    @PreDestroy
+    public void unlock() {
+        if (lockConnection == null) {
+            return;
+        }
+        // Unlocked explicitly: closing only hands the connection back to the pool, lock and all
+        try (Connection connection = lockConnection;
+             PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            ps.setLong(1, SINGLE_INSTANCE_LOCK);
+            ps.execute();
+        } catch (SQLException ex) {
+            log.warn("Could not release the hot stock single-instance lock", ex);
+        }
+        lockConnection = null;
+    }
+
+    public boolean isEnabled() {
+        return !counters.isEmpty();
+    }
+
+    /**
+     * The counter of a hot product, empty for everything else.
+     */
+    public Optional<StripedStockCounter> get(Long productId) {
+        return Optional.ofNullable(counters.get(productId));
+    }
+}
@@ -0,0 +1,123 @@
+package com.quickcommerce.backend.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Available stock of one product, split into per-stripe quotas so concurrent checkouts
+ * decrement different memory locations instead of queuing on a single counter (or row lock).
+ *
+ * A take first tries the caller's home stripe, then the others, each with a plain CAS loop
+ * that never lets a stripe go below zero. Only when no single stripe can cover the quantity
+ * (stock running low, or a large line) does it fall back to draining and re-splitting all
+ * stripes under a lock, so the total can be used to the last unit.
+ */
+public final class StripedStockCounter {
+
+    // 16 longs = 128 bytes between stripes, so neighbouring stripes never share a cache line
+    private static final int PAD = 16;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+    private final int mask;
+    private final Object rebalanceLock = new Object();
+
+    /**
+     * @param stock initial available stock
+     * @param stripes number of stripes, rounded up to a power of two
+     */
+    public StripedStockCounter(long stock, int stripes) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock can't be negative: " + stock);
+        }
+        this.stripes = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.mask = this.stripes - 1;
+        this.cells = new AtomicLongArray(this.stripes * PAD);
+        spread(stock);
+    }
+
+    /**
+     * Takes {@code quantity} units if that many are available, all or nothing.
+     *
+     * @return whether the units were taken
+     */
+    public boolean tryTake(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        int home = homeStripe();
+        for (int i = 0; i < stripes; i++) {
+            int cell = ((home + i) & mask) * PAD;
+            long available;
+            while ((available = cells.get(cell)) >= quantity) {
+                if (cells.compareAndSet(cell, available, available - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return rebalanceAndTake(quantity);
+    }
+
+    /**
+     * Returns units taken earlier (a released or rolled back reservation).
+     */
+    public void giveBack(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        cells.addAndGet(homeStripe() * PAD, quantity);
+    }
+
+    /**
+     * Units currently available. Only a moment's view while takes are in flight.
+     */
+    public long available() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PAD);
+        }
+        return total;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    private boolean rebalanceAndTake(int quantity) {
+        synchronized (rebalanceLock) {
+            long total = drain();
+            if (total < quantity) {
+                // Units given back into already drained stripes meanwhile would otherwise be missed
+                total += drain();
+            }
+            boolean taken = total >= quantity;
+            spread(taken ? total - quantity : total);
+            return taken;
+        }
+    }
+
+    private long drain() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PAD, 0);
+        }
+        return total;
+    }
+
+    // Adds rather than sets: lock-free takes and give-backs keep going while we re-split
+    private void spread(long stock) {
+        long share = stock / stripes;
+        long remainder = stock % stripes;
+        for (int i = 0; i < stripes; i++) {
+            long amount = share + (i < remainder ? 1 : 0);
+            if (amount > 0) {
+                cells.addAndGet(i * PAD, amount);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation") // Thread.threadId() needs Java 19
+    private int homeStripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
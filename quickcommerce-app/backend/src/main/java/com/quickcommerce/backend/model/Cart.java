@@ -1,9 +1,13 @@
 package com.quickcommerce.backend.model;
 
+import com.quickcommerce.backend.cart.CartTotals;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -42,32 +46,54 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> items = new ArrayList<>();
 
-    // Helper method to calculate cart total
-    public BigDecimal getTotal() {
-        return items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
+    // Running totals of the lines. Kept in step here as lines change; the database keeps its
+    // copy in step itself (see the apply_cart_item_totals trigger), so they're never written
+    @Setter(AccessLevel.NONE)
+    @ColumnDefault("0")
+    @Column(name = "subtotal_minor", nullable = false, insertable = false, updatable = false)
+    private long subtotalMinor;
 
-    // Helper method to count items
-    public Integer getItemCount() {
-        return items.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+    @Setter(AccessLevel.NONE)
+    @ColumnDefault("0")
+    @Column(name = "item_count", nullable = false, insertable = false, updatable = false)
+    private int itemCount;
+
+    // Cart total, from the running subtotal
+    public BigDecimal getTotal() {
+        return CartTotals.toDecimal(subtotalMinor);
     }
 
     // Convenience method to add an item to the cart
     public void addItem(CartItem item) {
         items.add(item);
         item.setCart(this);
+        lineChanged(null, 0, item.getPrice(), item.getQuantity());
     }
 
     // Convenience method to remove an item from the cart
     public void removeItem(CartItem item) {
         items.remove(item);
+        if (item.getCart() == this) {
+            lineChanged(item.getPrice(), item.getQuantity(), null, 0);
+        }
         item.setCart(null);
     }
 
+    // Removes every item from the cart
+    public void clearItems() {
+        items.clear();
+        subtotalMinor = 0;
+        itemCount = 0;
+    }
+
+    // Applies the change of one of the cart's lines to the running totals
+    void lineChanged(BigDecimal oldPrice, int oldQuantity, BigDecimal newPrice, int newQuantity) {
+        long oldSubtotal = oldPrice != null ? CartTotals.lineMinor(oldPrice, oldQuantity) : 0;
+        long newSubtotal = newPrice != null ? CartTotals.lineMinor(newPrice, newQuantity) : 0;
+        subtotalMinor = Math.addExact(subtotalMinor, Math.subtractExact(newSubtotal, oldSubtotal));
+        itemCount = Math.addExact(itemCount, Math.subtractExact(newQuantity, oldQuantity));
+    }
+
     @Override
     public String toString() {
         return "Cart{" +
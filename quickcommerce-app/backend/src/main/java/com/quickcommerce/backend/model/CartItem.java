@@ -43,6 +43,22 @@ public class CartItem {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Quantity and price changes of an item in a cart carry over to the cart's totals (loading
+    // sets the fields directly, not through these)
+    public void setQuantity(Integer quantity) {
+        if (cart != null && this.quantity != null && price != null && quantity != null) {
+            cart.lineChanged(price, this.quantity, price, quantity);
+        }
+        this.quantity = quantity;
+    }
+
+    public void setPrice(BigDecimal price) {
+        if (cart != null && quantity != null && this.price != null && price != null) {
+            cart.lineChanged(this.price, quantity, price, quantity);
+        }
+        this.price = price;
+    }
+
     // Helper method to calculate subtotal
     public BigDecimal getSubtotal() {
         return price.multiply(BigDecimal.valueOf(quantity));
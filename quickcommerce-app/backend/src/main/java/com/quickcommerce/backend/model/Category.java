@@ -1,15 +1,21 @@
 package com.quickcommerce.backend.model;
 
+import com.quickcommerce.backend.catalog.CategoryEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
 @Table(name = "categories")
+@EntityListeners(CategoryEntityListener.class) // Keeps the cached category list in sync
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 @Data
 @NoArgsConstructor
 public class Category {
@@ -1,11 +1,15 @@
 package com.quickcommerce.backend.model;
 
+import com.quickcommerce.backend.catalog.ProductEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -14,6 +18,9 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "products")
+@EntityListeners(ProductEntityListener.class) // Keeps in-memory catalog views in sync
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -24,11 +31,23 @@ public class Product {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Size(max = 64)
+    @Column(unique = true, length = 64)
+    private String sku; // Natural key for catalog imports; null for products created before SKUs
+
     @NotBlank
     @Size(max = 200)
     @Column(nullable = false)
     private String name;
 
+    // upper(name) in the "C" collation (ASCII letters folded), kept by the database (V22);
+    // listings sort names by it.
+    // The definition is only used when the schema is generated (tests)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "name_key", insertable = false, updatable = false,
+            columnDefinition = "VARCHAR(255) GENERATED ALWAYS AS (UPPER(name))")
+    private String nameKey;
+
     @Column(columnDefinition = "TEXT")
     private String description;
 
@@ -38,8 +57,10 @@ public class Product {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
 
+    // Owned by the inventory service (plain JDBC) once the product exists; never written back
+    // from here, where it may be stale (second-level cache)
     @Min(0)
-    @Column(nullable = false, name = "stock_quantity")
+    @Column(nullable = false, name = "stock_quantity", updatable = false)
     private int stockQuantity = 0;
 
     @Size(max = 255)
@@ -3,6 +3,8 @@ package com.quickcommerce.backend.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -16,6 +18,8 @@ import java.util.Set;
 })
 @Data // Lombok annotation for getters, setters, toString, equals, hashCode
 @NoArgsConstructor // Lombok annotation for no-args constructor
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user") // short TTL, see application.conf
 public class User {
 
     @Id
@@ -38,6 +42,7 @@ public class User {
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "role")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
     private Set<String> roles = new HashSet<>();
 
     @CreationTimestamp
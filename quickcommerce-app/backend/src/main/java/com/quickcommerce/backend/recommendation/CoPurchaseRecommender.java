@@ -0,0 +1,377 @@
+package com.quickcommerce.backend.recommendation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * "Frequently bought together", maintained incrementally instead of with a self-join over
+ * {@code order_items}.
+ *
+ * Every committed order adds one to the count of each pair of distinct products in it.
+ * Counts live in a {@link LongIntHashMap} keyed by the pair's two ids packed into one
+ * {@code long}. Periodically, when orders came in, a background pass turns the counts into
+ * an immutable snapshot of the top related products per product: sorted primitive arrays,
+ * so a lookup is a binary search and a copy of at most a few dozen ids.
+ *
+ * On startup the counts are seeded from the order history with one ordered scan of
+ * {@code order_items} (no join of the table with itself). Until that is done the
+ * recommendations are simply empty. The seed covers the orders up to the highest order id at
+ * the time it starts, and live events only count orders above it, so no order is counted
+ * twice; events that arrive before that id is known are held back until it is.
+ *
+ * At most {@code max-pairs} pairs are counted. Past that, the rarest pairs are dropped until
+ * the map is back to three quarters of the cap; pairs seen once go first, and those were never
+ * recommended anyway.
+ */
+@Component
+@Slf4j
+public class CoPurchaseRecommender {
+
+    private static final String HISTORY_SQL =
+            "SELECT i.order_id, i.product_id FROM order_items i " +
+            "JOIN orders o ON o.id = i.order_id " +
+            "WHERE o.order_date >= ? AND o.id <= ? " +
+            "ORDER BY i.order_id";
+
+    private static final String WATERMARK_SQL = "SELECT COALESCE(MAX(id), 0) FROM orders";
+    private static final long NO_WATERMARK = -1;
+
+    // Both ids of a pair must fit in half of the packed key
+    private static final long MAX_PACKABLE_ID = 0xFFFFFFFFL;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxRelated;
+    private final int maxItemsPerOrder;
+    private final int minCount;
+    private final int historyDays;
+    private final int maxPairs;
+
+    // Guarded by this
+    private LongIntHashMap pairCounts = new LongIntHashMap(1 << 16);
+    // Guarded by this: highest order id the seed covers, and live events that came before it was known
+    private long seedWatermark = NO_WATERMARK;
+    private List<OrderPlacedEvent> earlyEvents = new ArrayList<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Object refreshLock = new Object();
+    private final ExecutorService seeder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "co-purchase-seed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Related related = Related.EMPTY;
+
+    public CoPurchaseRecommender(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.recommendations.max-related:20}") int maxRelated,
+                                 @Value("${app.recommendations.max-items-per-order:50}") int maxItemsPerOrder,
+                                 @Value("${app.recommendations.min-count:2}") int minCount,
+                                 @Value("${app.recommendations.history-days:180}") int historyDays,
+                                 @Value("${app.recommendations.max-pairs:2000000}") int maxPairs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxRelated = Math.max(1, maxRelated);
+        this.maxItemsPerOrder = maxItemsPerOrder;
+        this.minCount = Math.max(1, minCount);
+        this.historyDays = historyDays;
+        this.maxPairs = maxPairs;
+
+        Gauge.builder("recommendations.co_purchase.pairs", this, recommender -> recommender.pairCount())
+                .description("Product pairs with a co-purchase count")
+                .register(meterRegistry);
+        Gauge.builder("recommendations.co_purchase.products", this, recommender -> recommender.related.productIds.length)
+                .description("Products that have related products in the current snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Seeds the counts from past orders in the background, then publishes a first snapshot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        seeder.execute(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                long watermark = startFrom(jdbcTemplate.queryForObject(WATERMARK_SQL, Long.class));
+                int orders = loadHistory(watermark);
+                refresh();
+                log.info("Co-purchase counts seeded from {} orders in {} ms ({} pairs)",
+                        orders, System.currentTimeMillis() - start, pairCount());
+            } catch (RuntimeException ex) {
+                log.error("Seeding co-purchase counts failed; recommendations only cover new orders", ex);
+                // Without a watermark every live order counts, the held back ones included
+                startFrom(0L);
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        synchronized (this) {
+            if (seedWatermark == NO_WATERMARK) {
+                earlyEvents.add(event);
+                return;
+            }
+        }
+        if (isLive(event)) {
+            record(event.getProductIds());
+        }
+    }
+
+    /**
+     * Sets the seed watermark, once, and counts the held back events above it.
+     *
+     * @return the watermark in effect
+     */
+    private long startFrom(Long watermark) {
+        List<OrderPlacedEvent> early;
+        synchronized (this) {
+            if (seedWatermark != NO_WATERMARK) {
+                return seedWatermark;
+            }
+            seedWatermark = watermark == null ? 0 : watermark;
+            early = earlyEvents;
+            earlyEvents = null;
+        }
+        early.stream().filter(this::isLive).forEach(event -> record(event.getProductIds()));
+        return seedWatermark;
+    }
+
+    private synchronized boolean isLive(OrderPlacedEvent event) {
+        return event.getOrderId() == null || event.getOrderId() > seedWatermark;
+    }
+
+    /**
+     * Rebuilds the snapshot if orders came in since the last one.
+     */
+    @Scheduled(fixedDelayString = "${app.recommendations.snapshot-interval-ms:60000}")
+    public void refresh() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        // Keeps the scheduled and the seeding refresh from publishing out of order
+        synchronized (refreshLock) {
+            LongIntHashMap counts;
+            synchronized (this) {
+                counts = pairCounts.copy();
+            }
+            related = Related.build(counts, maxRelated, minCount);
+        }
+    }
+
+    /**
+     * Ids of the products most often bought together with {@code productId}, most frequent
+     * first; empty if there are none (yet).
+     */
+    public List<Long> getRelated(long productId, int limit) {
+        return related.get(productId, limit);
+    }
+
+    void record(Collection<Long> productIds) {
+        long[] ids = productIds.stream()
+                .filter(id -> id != null && id > 0 && id <= MAX_PACKABLE_ID)
+                .mapToLong(Long::longValue)
+                .distinct()
+                .sorted()
+                .limit(maxItemsPerOrder)
+                .toArray();
+        if (ids.length < 2) {
+            return;
+        }
+        synchronized (this) {
+            for (int i = 0; i < ids.length; i++) {
+                for (int j = i + 1; j < ids.length; j++) {
+                    pairCounts.addTo(ids[i] << 32 | ids[j], 1);
+                }
+            }
+            if (pairCounts.size() > maxPairs) {
+                prune();
+            }
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * Drops the pairs with the lowest counts, so that at most three quarters of
+     * {@code maxPairs} are left. One pass finds the cut-off count, one more rebuilds the map.
+     */
+    private void prune() {
+        int target = maxPairs / 4 * 3;
+        // Pairs by count, counts of 64 and above sharing the last bucket
+        int[] pairsWithCount = new int[65];
+        pairCounts.forEach((pair, count) -> pairsWithCount[Math.min(count, 64)]++);
+        int keptFrom = 1;
+        int kept = pairCounts.size();
+        while (keptFrom < 64 && kept > target) {
+            kept -= pairsWithCount[keptFrom];
+            keptFrom++;
+        }
+        int before = pairCounts.size();
+        pairCounts = pairCounts.withValuesAtLeast(keptFrom);
+        log.info("Co-purchase pairs pruned from {} to {} (kept counts of {} and more)", before, pairCounts.size(), keptFrom);
+    }
+
+    private int loadHistory(long watermark) {
+        Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusDays(historyDays));
+        int[] orders = new int[1];
+        List<Long> basket = new ArrayList<>();
+        long[] currentOrder = {-1};
+        RowCallbackHandler handler = rs -> {
+            long orderId = rs.getLong(1);
+            if (orderId != currentOrder[0]) {
+                record(basket);
+                basket.clear();
+                currentOrder[0] = orderId;
+                orders[0]++;
+            }
+            basket.add(rs.getLong(2));
+        };
+        // Streamed with a cursor rather than loaded at once, which needs a transaction on Postgres
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(HISTORY_SQL);
+            ps.setFetchSize(5000);
+            ps.setTimestamp(1, since);
+            ps.setLong(2, watermark);
+            return ps;
+        }, handler));
+        record(basket);
+        return orders[0];
+    }
+
+    private synchronized int pairCount() {
+        return pairCounts.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        seeder.shutdownNow();
+    }
+
+    /**
+     * Immutable top related products per product: {@code productIds} sorted, and
+     * {@code relatedIds[i]} the related products of {@code productIds[i]}, most frequent first.
+     */
+    private static final class Related {
+
+        static final Related EMPTY = new Related(new long[0], new long[0][]);
+
+        final long[] productIds;
+        final long[][] relatedIds;
+
+        private Related(long[] productIds, long[][] relatedIds) {
+            this.productIds = productIds;
+            this.relatedIds = relatedIds;
+        }
+
+        static Related build(LongIntHashMap counts, int maxRelated, int minCount) {
+            Map<Long, TopN> tops = new HashMap<>();
+            counts.forEach((pair, count) -> {
+                if (count < minCount) {
+                    return;
+                }
+                long first = pair >>> 32;
+                long second = pair & MAX_PACKABLE_ID;
+                tops.computeIfAbsent(first, id -> new TopN(maxRelated)).offer(second, count);
+                tops.computeIfAbsent(second, id -> new TopN(maxRelated)).offer(first, count);
+            });
+
+            long[] productIds = tops.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            long[][] relatedIds = new long[productIds.length][];
+            for (int i = 0; i < productIds.length; i++) {
+                relatedIds[i] = tops.get(productIds[i]).sortedIds();
+            }
+            return new Related(productIds, relatedIds);
+        }
+
+        List<Long> get(long productId, int limit) {
+            int index = Arrays.binarySearch(productIds, productId);
+            if (index < 0) {
+                return List.of();
+            }
+            long[] ids = relatedIds[index];
+            int size = Math.min(limit, ids.length);
+            List<Long> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(ids[i]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The {@code capacity} ids with the highest counts offered so far. Capacity is small, so
+     * replacing the current minimum is a linear scan.
+     */
+    private static final class TopN {
+
+        private final long[] ids;
+        private final int[] counts;
+        private int size;
+
+        TopN(int capacity) {
+            this.ids = new long[capacity];
+            this.counts = new int[capacity];
+        }
+
+        void offer(long id, int count) {
+            if (size < ids.length) {
+                ids[size] = id;
+                counts[size++] = count;
+                return;
+            }
+            int min = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+            if (count > counts[min]) {
+                ids[min] = id;
+                counts[min] = count;
+            }
+        }
+
+        long[] sortedIds() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // Highest count first, lower id first among equals so the order is stable
+            Arrays.sort(order, (a, b) -> counts[a] != counts[b]
+                    ? Integer.compare(counts[b], counts[a])
+                    : Long.compare(ids[a], ids[b]));
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = ids[order[i]];
+            }
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.quickcommerce.backend.recommendation;
+
+/**
+ * Open-addressing hash map from {@code long} to {@code int}, without boxing: two parallel
+ * arrays probed linearly, about 12 bytes per slot instead of the ~80 a
+ * {@code HashMap<Long, Integer>} entry costs. Key {@code 0} marks a free slot and can't be
+ * stored. Not thread-safe.
+ */
+final class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private LongIntHashMap(LongIntHashMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.resizeAt = other.resizeAt;
+    }
+
+    /**
+     * Adds {@code delta} to the value of {@code key}, starting from 0 if absent.
+     */
+    void addTo(long key, int delta) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > resizeAt) {
+            resize();
+        }
+    }
+
+    int get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    LongIntHashMap copy() {
+        return new LongIntHashMap(this);
+    }
+
+    /**
+     * A new map with only the entries whose value is at least {@code minValue}.
+     */
+    LongIntHashMap withValuesAtLeast(int minValue) {
+        int kept = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0 && values[slot] >= minValue) {
+                kept++;
+            }
+        }
+        LongIntHashMap result = new LongIntHashMap(kept);
+        forEach((key, value) -> {
+            if (value >= minValue) {
+                result.addTo(key, value);
+            }
+        });
+        return result;
+    }
+
+    void forEach(Entry consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @FunctionalInterface
+    interface Entry {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,22 @@
+package com.quickcommerce.backend.recommendation;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published when an order is created, with the products it contains. Listeners that learn
+ * from purchases (co-purchase recommendations) handle it once the order has committed.
+ */
+@Getter
+public class OrderPlacedEvent {
+
+    private final Long orderId;
+    private final Set<Long> productIds;
+
+    public OrderPlacedEvent(Long orderId, Collection<Long> productIds) {
+        this.orderId = orderId;
+        this.productIds = Set.copyOf(productIds);
+    }
+}
@@ -0,0 +1,54 @@
+package com.quickcommerce.backend.repository;
+
+import com.quickcommerce.backend.dto.CartDTO;
+import com.quickcommerce.backend.dto.UpdateCartItemsRequest;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Cart statements that JPA can't express in one round trip, implemented with plain JDBC
+ * in {@link CartItemRepositoryImpl}.
+ */
+public interface CartItemRepositoryCustom {
+
+    /**
+     * Adds {@code quantity} of a product to the cart of the user (or, without one, of the
+     * session), creating the cart and the line as needed, in one statement. Concurrent adds
+     * of the same product add up instead of colliding on the unique line index.
+     *
+     * @return the cart's id, empty if the product doesn't exist
+     */
+    Optional<Long> addItem(Long userId, String sessionId, Long productId, int quantity);
+
+    /**
+     * The id of the cart of the user (or, without one, of the session), created if needed
+     * and touched either way, in one statement.
+     */
+    Long findOrCreateCartId(Long userId, String sessionId);
+
+    /**
+     * Applies coalesced line changes (one per product, see
+     * {@link com.quickcommerce.backend.cart.CartItemChanges}) with one delete and one batch of
+     * upserts.
+     *
+     * @return ids of products that were to be added or set but don't exist
+     */
+    Set<Long> applyItemChanges(Long cartId, Map<Long, UpdateCartItemsRequest.Operation> changes);
+
+    /**
+     * Moves the lines of the session's guest cart into the user's cart and deletes the guest
+     * cart, in one statement. Quantities of products in both carts add up; new lines keep the
+     * guest cart's price. Deleting the guest cart is what makes it safe to retry: a second
+     * merge, concurrent or later, finds nothing left to move.
+     *
+     * @return the user's cart id, empty if there was nothing to merge
+     */
+    Optional<Long> mergeGuestCart(Long userId, String sessionId);
+
+    /**
+     * The cart with its lines and totals, read in one query.
+     */
+    Optional<CartDTO> findCartDTO(Long cartId);
+}
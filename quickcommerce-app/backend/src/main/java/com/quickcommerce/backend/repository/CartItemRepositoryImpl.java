@@ -0,0 +1,214 @@
+package com.quickcommerce.backend.repository;
+
+import com.quickcommerce.backend.cart.CartTotals;
+import com.quickcommerce.backend.dto.CartDTO;
+import com.quickcommerce.backend.dto.CartItemDTO;
+import com.quickcommerce.backend.dto.UpdateCartItemsRequest.Operation;
+import com.quickcommerce.backend.model.Cart;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * JDBC side of {@link CartItemRepository}. Runs in the caller's transaction; pending JPA
+ * changes are flushed before each statement so it sees them, and a cart it modifies is
+ * detached from the persistence context afterwards so later JPA reads don't serve a stale
+ * copy.
+ */
+public class CartItemRepositoryImpl implements CartItemRepositoryCustom {
+
+    // ON CONFLICT targets of the one-cart-per-owner indexes (V23)
+    private static final String USER_CART = "(user_id) WHERE user_id IS NOT NULL";
+    private static final String GUEST_CART = "(session_id) WHERE user_id IS NULL";
+
+    // Creates the cart or, if the owner (%s is USER_CART or GUEST_CART) has one, touches it.
+    // The unique index makes concurrent callers wait for each other and land on the same row
+    private static final String CART_ID_SQL =
+            "INSERT INTO carts (user_id, session_id) VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR)) " +
+            "ON CONFLICT %s DO UPDATE SET updated_at = CURRENT_TIMESTAMP " +
+            "RETURNING id";
+
+    // Finds or creates the cart as CART_ID_SQL does, and upserts the line
+    private static final String ADD_ITEM_SQL =
+            "WITH cart AS (" + CART_ID_SQL + ") " +
+            "INSERT INTO cart_items (cart_id, product_id, quantity, price) " +
+            "SELECT cart.id, p.id, ?, p.price FROM cart CROSS JOIN products p WHERE p.id = ? " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity " +
+            "RETURNING cart_id";
+
+    private static final String DELETE_ITEMS_SQL =
+            "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ANY (?)";
+
+    // Adds to the line, or with the flag set replaces its quantity; new lines take the current price
+    private static final String UPSERT_ITEM_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity, price) " +
+            "SELECT ?, p.id, ?, p.price FROM products p WHERE p.id = ? " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = " +
+            "  CASE WHEN CAST(? AS BOOLEAN) THEN EXCLUDED.quantity ELSE cart_items.quantity + EXCLUDED.quantity END";
+
+    // The guest cart is deleted (its lines go with it, by cascade) in the same statement that
+    // copies them, reading them from the statement's snapshot. The user's cart is found or
+    // created as in CART_ID_SQL, so a first add running at the same time shares it
+    private static final String MERGE_GUEST_CART_SQL =
+            "WITH guest AS (" +
+            "  DELETE FROM carts WHERE session_id = ? AND user_id IS NULL RETURNING id" +
+            "), guest_items AS (" +
+            "  SELECT ci.product_id, SUM(ci.quantity) AS quantity, MIN(ci.price) AS price " +
+            "  FROM cart_items ci JOIN guest g ON g.id = ci.cart_id " +
+            "  GROUP BY ci.product_id" +
+            "), cart AS (" +
+            "  INSERT INTO carts (user_id) SELECT ? WHERE EXISTS (SELECT 1 FROM guest_items) " +
+            "  ON CONFLICT " + USER_CART + " DO UPDATE SET updated_at = CURRENT_TIMESTAMP " +
+            "  RETURNING id" +
+            ") " +
+            "INSERT INTO cart_items (cart_id, product_id, quantity, price) " +
+            "SELECT cart.id, gi.product_id, gi.quantity, gi.price FROM cart CROSS JOIN guest_items gi " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity " +
+            "RETURNING cart_id";
+
+    private static final String CART_SQL =
+            "SELECT c.id, c.user_id, c.session_id, c.updated_at, c.subtotal_minor, c.item_count, " +
+            "       ci.id, ci.product_id, p.name, p.image_url, ci.price, ci.quantity " +
+            "FROM carts c " +
+            "LEFT JOIN cart_items ci ON ci.cart_id = c.id " +
+            "LEFT JOIN products p ON p.id = ci.product_id " +
+            "WHERE c.id = ? " +
+            "ORDER BY ci.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CartItemRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Long> addItem(Long userId, String sessionId, Long productId, int quantity) {
+        flushPendingChanges();
+        List<Long> cartIds = jdbcTemplate.queryForList(String.format(ADD_ITEM_SQL, ownerConflict(userId)), Long.class,
+                userId, userId != null ? null : sessionId, quantity, productId);
+        cartIds.forEach(this::detachCart);
+        return cartIds.stream().findFirst();
+    }
+
+    @Override
+    public Long findOrCreateCartId(Long userId, String sessionId) {
+        flushPendingChanges();
+        Long cartId = jdbcTemplate.queryForObject(String.format(CART_ID_SQL, ownerConflict(userId)), Long.class,
+                userId, userId != null ? null : sessionId);
+        detachCart(cartId);
+        return cartId;
+    }
+
+    @Override
+    public Set<Long> applyItemChanges(Long cartId, Map<Long, Operation> changes) {
+        flushPendingChanges();
+        List<Long> removed = new ArrayList<>();
+        List<Operation> upserts = new ArrayList<>();
+        changes.forEach((productId, change) -> {
+            if (change.getOp() == Operation.Type.REMOVE) {
+                removed.add(productId);
+            } else {
+                upserts.add(change);
+            }
+        });
+
+        if (!removed.isEmpty()) {
+            jdbcTemplate.update(DELETE_ITEMS_SQL, ps -> {
+                ps.setLong(1, cartId);
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", removed.toArray()));
+            });
+        }
+        Set<Long> unknown = new HashSet<>();
+        if (!upserts.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(UPSERT_ITEM_SQL, upserts, upserts.size(), (ps, change) -> {
+                ps.setLong(1, cartId);
+                ps.setInt(2, change.getQuantity());
+                ps.setLong(3, change.getProductId());
+                ps.setBoolean(4, change.getOp() == Operation.Type.SET);
+            });
+            // Nothing inserted or updated: the product doesn't exist
+            for (int i = 0; i < upserts.size(); i++) {
+                if (counts[0][i] == 0) {
+                    unknown.add(upserts.get(i).getProductId());
+                }
+            }
+        }
+        detachCart(cartId);
+        return unknown;
+    }
+
+    @Override
+    public Optional<Long> mergeGuestCart(Long userId, String sessionId) {
+        flushPendingChanges();
+        Optional<Long> cartId = jdbcTemplate.queryForList(MERGE_GUEST_CART_SQL, Long.class, sessionId, userId)
+                .stream()
+                .findFirst();
+        cartId.ifPresent(this::detachCart);
+        return cartId;
+    }
+
+    @Override
+    public Optional<CartDTO> findCartDTO(Long cartId) {
+        CartDTO[] cart = new CartDTO[1];
+        jdbcTemplate.query(CART_SQL, rs -> {
+            if (cart[0] == null) {
+                Timestamp updatedAt = rs.getTimestamp(4);
+                long userId = rs.getLong(2);
+                cart[0] = CartDTO.builder()
+                        .id(rs.getLong(1))
+                        .userId(rs.wasNull() ? null : userId)
+                        .sessionId(rs.getString(3))
+                        .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                        .items(new ArrayList<>())
+                        .total(CartTotals.toDecimal(rs.getLong(5)))
+                        .itemCount(rs.getInt(6))
+                        .build();
+            }
+            long itemId = rs.getLong(7);
+            if (rs.wasNull()) {
+                return;
+            }
+            BigDecimal price = rs.getBigDecimal(11);
+            int quantity = rs.getInt(12);
+            cart[0].getItems().add(CartItemDTO.builder()
+                    .id(itemId)
+                    .productId(rs.getLong(8))
+                    .productName(rs.getString(9))
+                    .productImage(rs.getString(10))
+                    .price(price)
+                    .quantity(quantity)
+                    .subtotal(price.multiply(BigDecimal.valueOf(quantity)))
+                    .build());
+        }, cartId);
+        return Optional.ofNullable(cart[0]);
+    }
+
+    private static String ownerConflict(Long userId) {
+        return userId != null ? USER_CART : GUEST_CART;
+    }
+
+    private void flushPendingChanges() {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+    }
+
+    // getReference returns the managed instance if there is one, a proxy (no SQL) otherwise
+    private void detachCart(Long cartId) {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.detach(entityManager.getReference(Cart.class, cartId));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.quickcommerce.backend.repository;
+
+import com.quickcommerce.backend.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    // Units sold per product across all orders (used as a popularity signal)
+    @Query("SELECT i.product.id AS productId, SUM(i.quantity) AS unitsSold FROM OrderItem i GROUP BY i.product.id")
+    List<ProductSales> findUnitsSoldPerProduct();
+
+    interface ProductSales {
+        Long getProductId();
+        Long getUnitsSold();
+    }
+}
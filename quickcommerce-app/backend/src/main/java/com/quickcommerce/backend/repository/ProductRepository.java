@@ -1,20 +1,69 @@
 package com.quickcommerce.backend.repository;
 
+import com.quickcommerce.backend.dto.ProductDTO;
 import com.quickcommerce.backend.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
+    String ACTIVE_PRODUCTS_REGION = "products-active";
+
     // Find active products only, with pagination
     Page<Product> findByActiveTrue(Pageable pageable);
 
     // Find active products by category, with pagination
     Page<Product> findByCategoryIdAndActiveTrue(Long categoryId, Pageable pageable);
 
+    // List views: one query per page (plus the count), category joined in, description left out.
+    // They serve listings while the catalog snapshot can't, so pages and counts are kept in the query cache
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ProductRepository.ACTIVE_PRODUCTS_REGION)
+    })
+    @Query(value = "SELECT new com.quickcommerce.backend.dto.ProductDTO(p.id, p.name, p.price, p.stockQuantity, p.imageUrl, c.id, c.name, p.active) " +
+                   "FROM Product p LEFT JOIN p.category c WHERE p.active = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true")
+    Page<ProductDTO> findActiveSummaries(Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ProductRepository.ACTIVE_PRODUCTS_REGION)
+    })
+    @Query(value = "SELECT new com.quickcommerce.backend.dto.ProductDTO(p.id, p.name, p.price, p.stockQuantity, p.imageUrl, c.id, c.name, p.active) " +
+                   "FROM Product p JOIN p.category c WHERE p.active = true AND c.id = :categoryId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.category.id = :categoryId")
+    Page<ProductDTO> findActiveSummariesByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    // All active products with their category, in one query (used to build the catalog snapshot)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.active = true")
+    List<Product> findAllActiveWithCategory();
+
+    // Specific products with their category, active or not (used for incremental snapshot updates)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id IN :ids")
+    List<Product> findAllWithCategoryByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Just the stock of specific products (used to patch stock changes into the snapshot)
+    @Query("SELECT p.id AS id, p.stockQuantity AS stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<StockLevel> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    interface StockLevel {
+        Long getId();
+
+        int getStockQuantity();
+    }
+
     // JpaSpecificationExecutor allows for dynamic query building (for search/filters)
-} 
\ No newline at end of file
+}
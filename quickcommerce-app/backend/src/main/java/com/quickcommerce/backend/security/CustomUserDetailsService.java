@@ -4,14 +4,15 @@ import com.quickcommerce.backend.model.User;
 import com.quickcommerce.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList; // Use this for empty authorities list for now
 import java.util.Collection;
+import java.util.stream.Collectors;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -56,7 +57,10 @@ public class CustomUserDetailsService implements UserDetailsService {
         
         @Override
         public Collection<? extends GrantedAuthority> getAuthorities() {
-            return new ArrayList<>(); // Empty authorities for now
+            // Roles are stored with the ROLE_ prefix (ROLE_CUSTOMER, ROLE_PARTNER, ROLE_ADMIN)
+            return user.getRoles().stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toList());
         }
         
         @Override
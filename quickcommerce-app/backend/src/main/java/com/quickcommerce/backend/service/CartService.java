@@ -3,19 +3,28 @@ package com.quickcommerce.backend.service;
 import com.quickcommerce.backend.dto.AddToCartRequest;
 import com.quickcommerce.backend.dto.CartDTO;
 import com.quickcommerce.backend.dto.UpdateCartItemRequest;
+import com.quickcommerce.backend.dto.UpdateCartItemsRequest;
 import com.quickcommerce.backend.model.User;
 
+import java.util.List;
+
 public interface CartService {
     
     // Get current user's cart
     CartDTO getCart(User user, String sessionId);
     
+    // Get current user's cart, optionally flagging lines that are out of stock or short
+    CartDTO getCart(User user, String sessionId, boolean includeAvailability);
+    
     // Add item to cart
     CartDTO addToCart(User user, String sessionId, AddToCartRequest request);
     
     // Update cart item quantity
     CartDTO updateCartItem(User user, String sessionId, Long itemId, UpdateCartItemRequest request);
     
+    // Apply several add/set/remove operations at once, in order
+    CartDTO updateCartItems(User user, String sessionId, List<UpdateCartItemsRequest.Operation> operations);
+    
     // Remove item from cart
     CartDTO removeFromCart(User user, String sessionId, Long itemId);
     
@@ -24,4 +33,8 @@ public interface CartService {
     
     // Merge guest cart with user cart after login
     CartDTO mergeGuestCart(User user, String sessionId);
+    
+    // Make sure the cart is written to the database, for stores that write behind; checkout calls it first
+    default void flush(User user, String sessionId) {
+    }
 } 
\ No newline at end of file
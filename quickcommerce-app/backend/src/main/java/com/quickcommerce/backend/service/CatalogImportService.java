@@ -0,0 +1,408 @@
+package com.quickcommerce.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.backend.catalog.CatalogChangedEvent;
+import com.quickcommerce.backend.dto.CatalogImportEventDTO;
+import com.quickcommerce.backend.dto.ProductImportRow;
+import com.quickcommerce.backend.model.Category;
+import com.quickcommerce.backend.repository.CategoryRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk product import for onboarding stores.
+ *
+ * The upload is read record by record and written in JDBC batches, so memory stays constant
+ * however large the file is. Rows are validated against the same constraints as {@code Product}
+ * and upserted on their SKU. Each batch commits on its own; progress and rejected rows are
+ * streamed back to the caller as NDJSON while the import runs.
+ *
+ * The upsert bypasses JPA, so no per-product catalog events fire. A single full reload is
+ * requested at the end instead, which bumps the catalog version once.
+ */
+@Service
+@Slf4j
+public class CatalogImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    // Fields a row leaves out keep their current values on an existing product. Imported stock is
+    // the count on hand, so applied holds still HELD are taken off it: releasing or expiring them
+    // hands their quantity back later. Committed holds are sold; unapplied ones are subtracted when
+    // the hot stock write-behind applies them.
+    private static final String UPSERT_SQL =
+            "INSERT INTO products (sku, name, description, price, stock_quantity, image_url, category_id, active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, COALESCE(CAST(? AS INTEGER), 0), ?, ?, COALESCE(CAST(? AS BOOLEAN), true), now(), now()) " +
+            "ON CONFLICT (sku) DO UPDATE SET name = EXCLUDED.name, price = EXCLUDED.price, " +
+            "description = COALESCE(EXCLUDED.description, products.description), " +
+            "image_url = COALESCE(EXCLUDED.image_url, products.image_url), " +
+            "category_id = COALESCE(EXCLUDED.category_id, products.category_id), " +
+            "stock_quantity = COALESCE(CAST(? AS INTEGER) - (SELECT COALESCE(SUM(r.quantity), 0) FROM inventory_reservations r " +
+            "  WHERE r.product_id = products.id AND r.status = 'HELD' AND r.stock_applied), products.stock_quantity), " +
+            "active = COALESCE(CAST(? AS BOOLEAN), products.active), updated_at = now()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxReportedRejections;
+
+    public CatalogImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                CategoryRepository categoryRepository,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.catalog.import.batch-size:500}") int batchSize,
+                                @Value("${app.catalog.import.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categoryRepository = categoryRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    /**
+     * Imports products from {@code in}, writing NDJSON {@link CatalogImportEventDTO}s to {@code out}.
+     */
+    public void importProducts(InputStream in, Format format, OutputStream out) {
+        ImportRun run = new ImportRun(out);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            RecordReader records = format == Format.CSV ? new CsvRecordReader(reader) : new NdjsonRecordReader(reader);
+            Map<String, Row> batch = new LinkedHashMap<>();
+            Row row;
+            while ((row = records.next()) != null) {
+                run.rowsRead++;
+                if (accept(row, run)) {
+                    // Last occurrence of a SKU wins; ON CONFLICT can't touch the same row twice per batch anyway
+                    batch.remove(row.data.getSku());
+                    batch.put(row.data.getSku(), row);
+                    if (batch.size() >= batchSize) {
+                        flush(batch, run);
+                    }
+                }
+            }
+            flush(batch, run);
+        } catch (RuntimeException | IOException e) {
+            log.error("Catalog import aborted after {} rows", run.rowsRead, e);
+            run.emit(CatalogImportEventDTO.failed(e.getMessage(), run.rowsRead, run.imported, run.rejected));
+            return;
+        } finally {
+            // Committed batches must reach the catalog whether or not the caller is still listening
+            requestReloadIfNeeded(run);
+        }
+        run.emit(CatalogImportEventDTO.progress("summary", run.rowsRead, run.imported, run.rejected));
+        log.info("Catalog import finished: {} rows read, {} imported, {} rejected", run.rowsRead, run.imported, run.rejected);
+    }
+
+    private boolean accept(Row row, ImportRun run) {
+        List<String> errors = new ArrayList<>(row.errors);
+        if (errors.isEmpty()) {
+            if (row.data.getSku() != null) {
+                row.data.setSku(row.data.getSku().trim());
+            }
+            for (ConstraintViolation<ProductImportRow> violation : validator.validate(row.data)) {
+                errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+            }
+            Long categoryId = resolveCategory(row.data, run);
+            if (categoryId == null && (row.data.getCategoryId() != null || StringUtils.hasText(row.data.getCategory()))) {
+                errors.add("category: unknown category");
+            }
+            row.categoryId = categoryId;
+        }
+        if (errors.isEmpty()) {
+            return true;
+        }
+        run.rejected++;
+        if (run.rejected <= maxReportedRejections) {
+            run.emit(CatalogImportEventDTO.rejected(row.line, row.data == null ? null : row.data.getSku(), errors));
+        }
+        return false;
+    }
+
+    private Long resolveCategory(ProductImportRow data, ImportRun run) {
+        if (run.categoryIds == null) {
+            // Loaded once per import; categories are few
+            run.categoryIds = new HashSet<>();
+            run.categoryIdsByName = new HashMap<>();
+            for (Category category : categoryRepository.findAll()) {
+                run.categoryIds.add(category.getId());
+                run.categoryIdsByName.put(category.getName().toLowerCase(Locale.ROOT), category.getId());
+            }
+        }
+        if (data.getCategoryId() != null) {
+            return run.categoryIds.contains(data.getCategoryId()) ? data.getCategoryId() : null;
+        }
+        return StringUtils.hasText(data.getCategory())
+                ? run.categoryIdsByName.get(data.getCategory().trim().toLowerCase(Locale.ROOT))
+                : null;
+    }
+
+    private void flush(Map<String, Row> batch, ImportRun run) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Row row : batch.values()) {
+            ProductImportRow data = row.data;
+            args.add(new Object[]{data.getSku(), data.getName().trim(), data.getDescription(), data.getPrice(),
+                    data.getStockQuantity(), data.getImageUrl(), row.categoryId, data.getActive(),
+                    data.getStockQuantity(), data.getActive()});
+        }
+        int[] types = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC,
+                Types.INTEGER, Types.VARCHAR, Types.BIGINT, Types.BOOLEAN,
+                Types.INTEGER, Types.BOOLEAN};
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, args, types));
+        run.imported += batch.size();
+        batch.clear();
+        run.emit(CatalogImportEventDTO.progress("progress", run.rowsRead, run.imported, run.rejected));
+    }
+
+    private void requestReloadIfNeeded(ImportRun run) {
+        if (run.imported > 0) {
+            eventPublisher.publishEvent(CatalogChangedEvent.fullReload());
+        }
+    }
+
+    // --- Record readers ---
+
+    /**
+     * A parsed record: either its data, or the reasons it couldn't be parsed.
+     */
+    private static final class Row {
+        final long line;
+        final ProductImportRow data;
+        final List<String> errors;
+        Long categoryId;
+
+        Row(long line, ProductImportRow data, List<String> errors) {
+            this.line = line;
+            this.data = data;
+            this.errors = errors;
+        }
+    }
+
+    private interface RecordReader {
+        /**
+         * @return the next record, or null at the end of the input
+         */
+        Row next() throws IOException;
+    }
+
+    private final class NdjsonRecordReader implements RecordReader {
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        NdjsonRecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new Row(lineNumber, objectMapper.readValue(line, ProductImportRow.class), List.of());
+                } catch (JsonProcessingException e) {
+                    return new Row(lineNumber, null, List.of("Malformed JSON: " + e.getOriginalMessage()));
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row naming the {@link ProductImportRow} fields (in any order).
+     * Quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    private static final class CsvRecordReader implements RecordReader {
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long lineNumber;
+
+        CsvRecordReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> header = readRecord();
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).replace("\uFEFF", "").trim(), i);
+            }
+            if (!columns.containsKey("sku")) {
+                throw new IllegalArgumentException("CSV header must include a sku column");
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            List<String> fields;
+            do {
+                fields = readRecord();
+            } while (fields != null && fields.size() == 1 && fields.get(0).isBlank());
+            if (fields == null) {
+                return null;
+            }
+            long line = lineNumber;
+            ProductImportRow data = new ProductImportRow();
+            List<String> errors = new ArrayList<>();
+            data.setSku(field(fields, "sku"));
+            data.setName(field(fields, "name"));
+            data.setDescription(field(fields, "description"));
+            data.setImageUrl(field(fields, "imageUrl"));
+            data.setCategory(field(fields, "category"));
+            try {
+                String price = field(fields, "price");
+                data.setPrice(price == null ? null : new BigDecimal(price.trim()));
+            } catch (NumberFormatException e) {
+                errors.add("price: not a number");
+            }
+            try {
+                String stock = field(fields, "stockQuantity");
+                data.setStockQuantity(stock == null ? null : Integer.valueOf(stock.trim()));
+            } catch (NumberFormatException e) {
+                errors.add("stockQuantity: not an integer");
+            }
+            try {
+                String categoryId = field(fields, "categoryId");
+                data.setCategoryId(categoryId == null ? null : Long.valueOf(categoryId.trim()));
+            } catch (NumberFormatException e) {
+                errors.add("categoryId: not an integer");
+            }
+            String active = field(fields, "active");
+            if (active != null) {
+                data.setActive(Boolean.parseBoolean(active.trim()));
+            }
+            return new Row(line, data, errors);
+        }
+
+        // Empty cells count as absent
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+                return null;
+            }
+            return fields.get(index);
+        }
+
+        private List<String> readRecord() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // Line break inside a quoted field: the record continues on the next line
+                    String more = reader.readLine();
+                    if (more == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    field.append('\n');
+                    line = more;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    /**
+     * Counters and output of one import.
+     */
+    private final class ImportRun {
+        private final OutputStream out;
+        private boolean disconnected;
+        long rowsRead;
+        long imported;
+        long rejected;
+        Set<Long> categoryIds;
+        Map<String, Long> categoryIdsByName;
+
+        ImportRun(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes {@code event} to the caller. A caller that has gone away doesn't stop the import:
+         * the failure is logged once and later events are dropped.
+         */
+        void emit(CatalogImportEventDTO event) {
+            if (disconnected) {
+                return;
+            }
+            try {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                disconnected = true;
+                log.warn("Catalog import client disconnected, continuing without progress events: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.quickcommerce.backend.service;
+
+import com.quickcommerce.backend.model.Order;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface InventoryService {
+
+    /**
+     * Stock currently available for each product, served from the catalog snapshot and hot
+     * product counters where possible and one query for the rest. Only a guide for the
+     * storefront: {@link #reserve} at checkout is what actually claims stock.
+     *
+     * @param productIds the products to look up
+     * @return available quantity per product id, 0 for unknown or inactive products
+     */
+    Map<Long, Integer> getAvailableStock(Collection<Long> productIds);
+
+    /**
+     * Reserve stock for every line of an order, all or nothing. Must run inside the
+     * order's transaction, as late as possible: row locks are held until it commits.
+     *
+     * @param orderId the order the holds belong to
+     * @param quantities quantity per product id
+     * @throws com.quickcommerce.backend.exception.InsufficientStockException if any line can't be covered
+     */
+    void reserve(Long orderId, Map<Long, Integer> quantities);
+
+    /**
+     * Turn an order's holds into a permanent stock deduction (e.g. once it's paid).
+     * Holds that already expired are re-reserved first.
+     *
+     * @param order the order
+     */
+    void commit(Order order);
+
+    /**
+     * Put back the stock held or committed for an order (e.g. when it's cancelled).
+     *
+     * @param orderId the order ID
+     */
+    void release(Long orderId);
+
+    /**
+     * Release holds past their expiry and cancel the orders they belonged to.
+     *
+     * @return the number of holds expired
+     */
+    int expireHolds();
+
+    /**
+     * Fold a batch of reservations taken from hot product counters into {@code products.stock_quantity}.
+     *
+     * @return the number of products updated
+     */
+    int applyHotStock();
+}
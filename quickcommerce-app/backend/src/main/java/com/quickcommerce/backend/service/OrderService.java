@@ -3,6 +3,7 @@ package com.quickcommerce.backend.service;
 import com.quickcommerce.backend.dto.CreateOrderRequest;
 import com.quickcommerce.backend.dto.OrderDTO;
 import com.quickcommerce.backend.dto.CartDTO;
+import com.quickcommerce.backend.dto.CheckoutQuoteDTO;
 import com.quickcommerce.backend.model.Order.OrderStatus;
 import com.quickcommerce.backend.model.User;
 import org.springframework.data.domain.Page;
@@ -19,6 +20,14 @@ public interface OrderService {
      */
     OrderDTO createOrder(User user, CreateOrderRequest request);
     
+    /**
+     * Reprice the user's cart against the current catalog, without placing an order
+     * 
+     * @param user the authenticated user
+     * @return the quote, flagging lines whose price changed or that are no longer sold
+     */
+    CheckoutQuoteDTO quoteCheckout(User user);
+    
     /**
      * Get an order by ID, ensuring it belongs to the current user
      * 
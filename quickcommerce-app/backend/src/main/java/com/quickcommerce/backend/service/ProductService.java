@@ -1,25 +1,44 @@
 package com.quickcommerce.backend.service;
 
+import com.quickcommerce.backend.catalog.CatalogSnapshot;
+import com.quickcommerce.backend.catalog.CatalogSnapshotCache;
+import com.quickcommerce.backend.catalog.HotProductCache;
+import com.quickcommerce.backend.catalog.ProductCursor;
+import com.quickcommerce.backend.catalog.ProductDtoMapper;
+import com.quickcommerce.backend.catalog.ProductSearchIndex;
+import com.quickcommerce.backend.catalog.ProductSuggestionIndex;
 import com.quickcommerce.backend.dto.CategoryDTO;
+import com.quickcommerce.backend.dto.CursorPageDTO;
 import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.exception.BadRequestException;
 import com.quickcommerce.backend.exception.ResourceNotFoundException;
 import com.quickcommerce.backend.model.Category;
 import com.quickcommerce.backend.model.Product;
+import com.quickcommerce.backend.recommendation.CoPurchaseRecommender;
 import com.quickcommerce.backend.repository.CategoryRepository;
 import com.quickcommerce.backend.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional; // Needed for lazy loading within method
 import org.springframework.util.StringUtils;
 
 import jakarta.persistence.criteria.Predicate; // Ensure correct import
-import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,39 +50,56 @@ public class ProductService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CatalogSnapshotCache catalogSnapshotCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestionIndex productSuggestionIndex;
+
+    @Autowired
+    private HotProductCache hotProductCache;
+
+    @Autowired
+    private CoPurchaseRecommender coPurchaseRecommender;
+
+    @Value("${app.catalog.multi-get.max-ids:100}")
+    private int maxMultiGetIds;
+
+    @Value("${app.recommendations.max-related:20}")
+    private int maxRelated;
+
     // --- Helper Mapper Methods ---
     private CategoryDTO mapToCategoryDTO(Category category) {
-        if (category == null) return null;
-        return new CategoryDTO(category.getId(), category.getName());
+        return ProductDtoMapper.toCategoryDTO(category);
     }
 
     private ProductDTO mapToProductDTO(Product product) {
-        if (product == null) return null;
-        // Accessing product.getCategory() triggers lazy loading if not already loaded
-        CategoryDTO categoryDTO = mapToCategoryDTO(product.getCategory()); 
-        return new ProductDTO(
-            product.getId(),
-            product.getName(),
-            product.getDescription(), // If description is lazy, it loads here
-            product.getPrice(),
-            product.getStockQuantity(),
-            product.getImageUrl(),
-            categoryDTO,
-            product.isActive()
-        );
+        return ProductDtoMapper.toProductDTO(product);
     }
 
     // --- Category Methods ---
-    @Transactional(readOnly = true) // Ensure session stays open for potential lazy loading
+    // Served from the catalog snapshot, with active-product counts; the DB is only read before the first snapshot
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public List<CategoryDTO> getAllCategories() {
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotCache.getSnapshot();
+        if (snapshot.isPresent()) {
+            return snapshot.get().getCategoryList();
+        }
         return categoryRepository.findAll()
                 .stream()
                 .map(this::mapToCategoryDTO)
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public CategoryDTO getCategoryById(Long id) {
+        Optional<CategoryDTO> cached = catalogSnapshotCache.getSnapshot().flatMap(snapshot -> snapshot.getCategoryWithCount(id));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
          Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", id));
         return mapToCategoryDTO(category);
@@ -72,81 +108,174 @@ public class ProductService {
     // Add create/update/delete category methods later (likely for admin)
 
     // --- Product Methods ---
-    @Transactional(readOnly = true) // Ensure session stays open for lazy loading category
+    // SUPPORTS: pages served from the catalog snapshot shouldn't check out a DB connection.
+    // The DB fallback reads DTO projections, so a page costs one query plus the count.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Page<ProductDTO> getAllActiveProducts(Pageable pageable) {
-        Page<Product> productPage = productRepository.findByActiveTrue(pageable);
-        return productPage.map(this::mapToProductDTO);
+        Optional<Page<ProductDTO>> cached = catalogSnapshotCache.findActiveProducts(null, pageable);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        return productRepository.findActiveSummaries(inCatalogOrder(pageable));
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Page<ProductDTO> getActiveProductsByCategory(Long categoryId, Pageable pageable) {
+        Optional<Page<ProductDTO>> cached = catalogSnapshotCache.findActiveProducts(categoryId, pageable);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         if (!categoryRepository.existsById(categoryId)) {
             throw new ResourceNotFoundException("Category", "id", categoryId);
         }
-        Page<Product> productPage = productRepository.findByCategoryIdAndActiveTrue(categoryId, pageable);
-        return productPage.map(this::mapToProductDTO);
+        return productRepository.findActiveSummariesByCategoryId(categoryId, inCatalogOrder(pageable));
     }
 
-    @Transactional(readOnly = true)
+    // Keyset mode for browsing: seeks past the cursor on (sort key, id) and skips the count query
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CursorPageDTO<ProductDTO> getActiveProductsAfter(Long categoryId, String after, Pageable pageable) {
+        ProductCursor cursor = ProductCursor.parse(after, pageable.getSort());
+        Optional<CursorPageDTO<ProductDTO>> cached =
+                catalogSnapshotCache.findActiveProductsAfter(categoryId, cursor, pageable.getPageSize());
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        if (categoryId != null && !categoryRepository.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category", "id", categoryId);
+        }
+        return findAfter(activeProductsSpecification(categoryId), cursor, pageable.getPageSize());
+    }
+
+    // Products getting the most views right now are served from the hot product cache
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public ProductDTO getProductById(Long id) {
-        Product product = productRepository.findById(id)
+        Optional<ProductDTO> hot = hotProductCache.recordView(id);
+        if (hot.isPresent()) {
+            return hot.get();
+        }
+        long generation = hotProductCache.generation();
+        Product product = productRepository.findAllWithCategoryByIdIn(List.of(id)).stream()
+                .findFirst()
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
         // Optional: Check if product is active before returning?
         // if (!product.isActive()) { ... }
-        return mapToProductDTO(product);
+        ProductDTO productDTO = mapToProductDTO(product);
+        hotProductCache.offer(productDTO, generation);
+        return productDTO;
     }
 
-    // --- Search Method ---
-    @Transactional(readOnly = true)
-    public Page<ProductDTO> searchProducts(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
-        if (!StringUtils.hasText(query)) {
-            return Page.empty(pageable);
+    // "Frequently bought together": products most often ordered with this one, most frequent first.
+    // Served from memory only; once the catalog snapshot is loaded, products no longer on sale are skipped.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<ProductDTO> getRelatedProducts(Long id, int limit) {
+        if (limit < 1 || limit > maxRelated) {
+            throw new BadRequestException("Limit must be between 1 and " + maxRelated);
         }
+        // Asks for all of them, since some may have to be skipped
+        List<Long> relatedIds = coPurchaseRecommender.getRelated(id, maxRelated);
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotCache.getSnapshot();
+        if (snapshot.isEmpty()) {
+            return getProductsByIds(relatedIds.subList(0, Math.min(limit, relatedIds.size())));
+        }
+        List<ProductDTO> result = new ArrayList<>(limit);
+        for (Long relatedId : relatedIds) {
+            snapshot.get().getProduct(relatedId).ifPresent(result::add);
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
 
-        Specification<Product> spec = (root, cq, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            // 1. Active products
-            predicates.add(cb.isTrue(root.get("active")));
+    // Multi-get for hydrating lists (recently viewed, wishlists, ...). Active products come from
+    // the catalog snapshot; the rest are read in one query with their category. Results follow
+    // the request order, without duplicates; unknown ids are skipped.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<ProductDTO> getProductsByIds(List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > maxMultiGetIds) {
+            throw new BadRequestException("At most " + maxMultiGetIds + " product ids can be requested at once");
+        }
 
-            // 2. Search query
-            if (StringUtils.hasText(query)) {
-                String queryString = "%" + query.toLowerCase() + "%";
-                Predicate namePredicate = cb.like(cb.lower(root.get("name")), queryString);
-                Predicate descriptionPredicate = cb.like(cb.lower(root.get("description")), queryString);
-                predicates.add(cb.or(namePredicate, descriptionPredicate));
-            }
-            
-            // 3. Category filter
-            if (categoryId != null) {
-                Join<Product, Category> categoryJoin = root.join("category"); 
-                predicates.add(cb.equal(categoryJoin.get("id"), categoryId));
+        Map<Long, ProductDTO> found = new HashMap<>(requested.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotCache.getSnapshot();
+        for (Long id : requested) {
+            Optional<ProductDTO> cached = snapshot.flatMap(s -> s.getProduct(id));
+            if (cached.isPresent()) {
+                found.put(id, cached.get());
+            } else {
+                missing.add(id);
             }
+        }
+        if (!missing.isEmpty()) {
+            productRepository.findAllWithCategoryByIdIn(missing)
+                    .forEach(product -> found.put(product.getId(), ProductDtoMapper.toProductSummaryDTO(product)));
+        }
 
-            // 4. Price range filter
-            if (minPrice != null) {
-                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+        List<ProductDTO> result = new ArrayList<>(found.size());
+        for (Long id : requested) {
+            ProductDTO product = found.get(id);
+            if (product != null) {
+                result.add(product);
             }
-            if (maxPrice != null) {
-                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+        }
+        return result;
+    }
+
+    // --- Search Method ---
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Page<ProductDTO> searchProducts(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        if (!StringUtils.hasText(query)) {
+            return Page.empty(pageable);
+        }
+
+        // Served from the in-memory inverted index once it has been loaded
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotCache.getSnapshot();
+        if (snapshot.isPresent() && productSearchIndex.isReady()) {
+            Optional<Page<ProductDTO>> results = productSearchIndex.search(
+                    snapshot.get(), query, categoryId, minPrice, maxPrice, pageable);
+            if (results.isPresent()) {
+                return results.get();
             }
+        }
 
-            // Combine predicates with AND
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
+        // Unsorted results have no order to keep: relevance in memory, none in the DB
+        Pageable dbPageable = pageable.getSort().isSorted() ? inCatalogOrder(pageable) : pageable;
+        Page<Product> productPage = productRepository.findAll(searchSpecification(query, categoryId, minPrice, maxPrice), dbPageable);
+        return productPage.map(ProductDtoMapper::toProductSummaryDTO);
+    }
 
-        Page<Product> productPage = productRepository.findAll(spec, pageable);
-        return productPage.map(this::mapToProductDTO);
+    // Keyset mode: seeks past the cursor on (sort key, id) and skips the count query.
+    // Relevance ranking has no stable key to seek on, so results are sorted by name unless a sort is given.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CursorPageDTO<ProductDTO> searchProductsAfter(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                                         String after, Pageable pageable) {
+        ProductCursor cursor = ProductCursor.parse(after, pageable.getSort());
+        if (!StringUtils.hasText(query)) {
+            return cursor.toPage(List.of(), pageable.getPageSize());
+        }
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotCache.getSnapshot();
+        if (snapshot.isPresent() && productSearchIndex.isReady()) {
+            return productSearchIndex.searchAfter(snapshot.get(), query, categoryId, minPrice, maxPrice, cursor, pageable.getPageSize());
+        }
+        return findAfter(searchSpecification(query, categoryId, minPrice, maxPrice), cursor, pageable.getPageSize());
     }
 
     // --- Suggestion Method ---
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public List<String> getProductSuggestions(String queryFragment) {
         // Don't return suggestions for very short fragments or empty strings
         if (!StringUtils.hasText(queryFragment) || queryFragment.length() < 2) { 
             return List.of(); // Return empty list
         }
 
+        // Served from memory once the suggestion index is loaded; matches word prefixes
+        if (productSuggestionIndex.isReady()) {
+            return productSuggestionIndex.suggest(queryFragment.trim());
+        }
+
         // Limit the number of suggestions
         Pageable limit = Pageable.ofSize(10); 
 
@@ -169,4 +298,81 @@ public class ProductService {
     }
 
     // Add create/update/delete product methods later (likely for admin)
-} 
\ No newline at end of file
+
+    // DB pages in the snapshot's order, so a page doesn't reorder when it falls back to the DB:
+    // the snapshot's sort keys with their id tie-break (names by name_key), and by id when unsorted
+    private static Pageable inCatalogOrder(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return pageable;
+        }
+        Sort sort = pageable.getSort();
+        if (sort.isUnsorted()) {
+            return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"));
+        }
+        List<Sort.Order> orders = sort.toList();
+        Optional<CatalogSnapshot.SortKey> key = orders.size() == 1
+                ? CatalogSnapshot.SortKey.fromProperty(orders.get(0).getProperty())
+                : Optional.empty();
+        return key.<Pageable>map(sortKey -> PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                        sortKey.toDbSort(orders.get(0).getDirection())))
+                .orElse(pageable);
+    }
+
+    // --- Specifications ---
+    private Specification<Product> searchSpecification(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice) {
+        return (root, cq, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            // Fetch the category with the page (but not in the count query) to avoid one SELECT per row
+            if (cq.getResultType() != Long.class && cq.getResultType() != long.class) {
+                root.fetch("category", JoinType.LEFT);
+            }
+
+            // 1. Active products
+            predicates.add(cb.isTrue(root.get("active")));
+
+            // 2. Search query
+            if (StringUtils.hasText(query)) {
+                String queryString = "%" + query.toLowerCase() + "%";
+                Predicate namePredicate = cb.like(cb.lower(root.get("name")), queryString);
+                Predicate descriptionPredicate = cb.like(cb.lower(root.get("description")), queryString);
+                predicates.add(cb.or(namePredicate, descriptionPredicate));
+            }
+            
+            // 3. Category filter
+            if (categoryId != null) {
+                // Compares the FK column; the category is already fetch-joined above
+                predicates.add(cb.equal(root.get("category").get("id"), categoryId));
+            }
+
+            // 4. Price range filter
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+            }
+
+            // Combine predicates with AND
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private Specification<Product> activeProductsSpecification(Long categoryId) {
+        return (root, cq, cb) -> {
+            root.fetch("category", JoinType.LEFT);
+            Predicate active = cb.isTrue(root.get("active"));
+            return categoryId == null ? active : cb.and(active, cb.equal(root.get("category").get("id"), categoryId));
+        };
+    }
+
+    // Reads size + 1 rows so the page knows whether there is a next one; no count query
+    private CursorPageDTO<ProductDTO> findAfter(Specification<Product> spec, ProductCursor cursor, int size) {
+        List<ProductDTO> window = productRepository.findBy(spec.and(cursor.seek()),
+                        query -> query.sortBy(cursor.sort()).limit(size + 1).all())
+                .stream()
+                .map(ProductDtoMapper::toProductSummaryDTO)
+                .collect(Collectors.toList());
+        return cursor.toPage(window, size);
+    }
+}
@@ -1,9 +1,11 @@
 package com.quickcommerce.backend.service.impl;
 
+import com.quickcommerce.backend.cart.CartItemChanges;
 import com.quickcommerce.backend.dto.AddToCartRequest;
 import com.quickcommerce.backend.dto.CartDTO;
 import com.quickcommerce.backend.dto.CartItemDTO;
 import com.quickcommerce.backend.dto.UpdateCartItemRequest;
+import com.quickcommerce.backend.dto.UpdateCartItemsRequest;
 import com.quickcommerce.backend.exception.NotFoundException;
 import com.quickcommerce.backend.model.Cart;
 import com.quickcommerce.backend.model.CartItem;
@@ -13,18 +15,24 @@ import com.quickcommerce.backend.repository.CartItemRepository;
 import com.quickcommerce.backend.repository.CartRepository;
 import com.quickcommerce.backend.repository.ProductRepository;
 import com.quickcommerce.backend.service.CartService;
+import com.quickcommerce.backend.service.InventoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "database", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class CartServiceImpl implements CartService {
@@ -32,47 +40,51 @@ public class CartServiceImpl implements CartService {
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
+    private final InventoryService inventoryService;
+
+    @Value("${app.cart.batch.max-operations:50}")
+    private int maxOperations;
 
     @Override
     @Transactional
     public CartDTO getCart(User user, String sessionId) {
+        return getCart(user, sessionId, false);
+    }
+
+    @Override
+    @Transactional
+    public CartDTO getCart(User user, String sessionId, boolean includeAvailability) {
         log.info("Getting cart for user: {}, sessionId: {}", user, sessionId);
         Cart cart = getOrCreateCart(user, sessionId);
         log.info("Retrieved cart: {}", cart);
-        return mapCartToDTO(cart);
+        CartDTO cartDTO = mapCartToDTO(cart);
+        if (includeAvailability && !cartDTO.getItems().isEmpty()) {
+            // One batched lookup for all lines
+            Map<Long, Integer> stock = inventoryService.getAvailableStock(cartDTO.getItems().stream()
+                    .map(CartItemDTO::getProductId)
+                    .collect(Collectors.toSet()));
+            cartDTO.getItems().forEach(item ->
+                    item.setAvailable(stock.getOrDefault(item.getProductId(), 0) >= item.getQuantity()));
+        }
+        return cartDTO;
     }
 
     @Override
     @Transactional
     public CartDTO addToCart(User user, String sessionId, AddToCartRequest request) {
-        Cart cart = getOrCreateCart(user, sessionId);
+        if (user == null && sessionId == null) {
+            log.warn("Both user and sessionId are null, adding to a transient cart");
+            return addToTransientCart(request);
+        }
         
-        // Find product
-        Product product = productRepository.findById(request.getProductId())
+        // One upsert finds or creates the cart and adds the line (new lines take the current
+        // price), then one read returns the cart. Concurrent adds of a product add up.
+        Long cartId = cartItemRepository.addItem(user != null ? user.getId() : null, sessionId,
+                        request.getProductId(), request.getQuantity())
                 .orElseThrow(() -> new NotFoundException("Product not found with ID: " + request.getProductId()));
         
-        // Check if product is already in cart
-        Optional<CartItem> existingItemOpt = cartItemRepository.findByCartAndProduct(cart, product);
-        
-        if (existingItemOpt.isPresent()) {
-            // Update existing item quantity
-            CartItem existingItem = existingItemOpt.get();
-            existingItem.setQuantity(existingItem.getQuantity() + request.getQuantity());
-            cartItemRepository.save(existingItem);
-        } else {
-            // Create new cart item
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setProduct(product);
-            newItem.setQuantity(request.getQuantity());
-            // Use the product's price directly (now both are BigDecimal)
-            newItem.setPrice(product.getPrice());
-            
-            cart.addItem(newItem);
-            cartRepository.save(cart);
-        }
-        
-        return mapCartToDTO(cart);
+        return cartItemRepository.findCartDTO(cartId)
+                .orElseThrow(() -> new IllegalStateException("Cart " + cartId + " vanished after adding to it"));
     }
 
     @Override
@@ -117,6 +129,26 @@ public class CartServiceImpl implements CartService {
         return mapCartToDTO(cart);
     }
 
+    @Override
+    @Transactional
+    public CartDTO updateCartItems(User user, String sessionId, List<UpdateCartItemsRequest.Operation> operations) {
+        Map<Long, UpdateCartItemsRequest.Operation> changes = CartItemChanges.coalesce(operations, maxOperations);
+        if (user == null && sessionId == null) {
+            log.warn("Both user and sessionId are null, nothing to update");
+            return mapCartToDTO(getOrCreateCart(null, null));
+        }
+        
+        // One statement for the cart, one delete and one batch of upserts for the lines, one read
+        Long cartId = cartItemRepository.findOrCreateCartId(user != null ? user.getId() : null, sessionId);
+        Set<Long> unknown = cartItemRepository.applyItemChanges(cartId, changes);
+        if (!unknown.isEmpty()) {
+            throw new NotFoundException("Product not found with ID: " + unknown.iterator().next());
+        }
+        
+        return cartItemRepository.findCartDTO(cartId)
+                .orElseThrow(() -> new IllegalStateException("Cart " + cartId + " vanished after updating it"));
+    }
+
     @Override
     @Transactional
     public CartDTO removeFromCart(User user, String sessionId, Long itemId) {
@@ -139,7 +171,7 @@ public class CartServiceImpl implements CartService {
     public void clearCart(User user, String sessionId) {
         Cart cart = getOrCreateCart(user, sessionId);
         cartItemRepository.deleteAllByCart(cart);
-        cart.getItems().clear();
+        cart.clearItems();
         cartRepository.save(cart);
     }
 
@@ -151,52 +183,29 @@ public class CartServiceImpl implements CartService {
             return getCart(user, null);
         }
         
-        // Find guest cart
-        Optional<Cart> guestCartOpt = cartRepository.findBySessionId(sessionId);
-        if (guestCartOpt.isEmpty() || guestCartOpt.get().getItems().isEmpty()) {
-            return getCart(user, null);
-        }
-        
-        // Find or create user cart
-        Cart userCart = cartRepository.findByUser(user)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    return cartRepository.save(newCart);
-                });
-        
-        // Merge items from guest cart to user cart
-        Cart guestCart = guestCartOpt.get();
-        for (CartItem guestItem : guestCart.getItems()) {
-            Optional<CartItem> existingItemOpt = cartItemRepository.findByCartAndProduct(userCart, guestItem.getProduct());
-            
-            if (existingItemOpt.isPresent()) {
-                // Update existing item quantity
-                CartItem existingItem = existingItemOpt.get();
-                existingItem.setQuantity(existingItem.getQuantity() + guestItem.getQuantity());
-                cartItemRepository.save(existingItem);
-            } else {
-                // Create new cart item in user cart
-                CartItem newItem = new CartItem();
-                newItem.setCart(userCart);
-                newItem.setProduct(guestItem.getProduct());
-                newItem.setQuantity(guestItem.getQuantity());
-                newItem.setPrice(guestItem.getPrice());
-                
-                userCart.addItem(newItem);
-            }
-        }
-        
-        // Save user cart and delete guest cart
-        cartRepository.save(userCart);
-        cartItemRepository.deleteAllByCart(guestCart);
-        cartRepository.delete(guestCart);
+        // One statement moves the guest lines over and deletes the guest cart, so a retried
+        // or concurrent login finds nothing left to merge; then one read returns the cart
+        Long cartId = cartItemRepository.mergeGuestCart(user.getId(), sessionId)
+                .orElseGet(() -> cartItemRepository.findOrCreateCartId(user.getId(), null));
         
-        return mapCartToDTO(userCart);
+        return cartItemRepository.findCartDTO(cartId)
+                .orElseThrow(() -> new IllegalStateException("Cart " + cartId + " vanished after merging into it"));
     }
     
     // Helper methods
     
+    private CartDTO addToTransientCart(AddToCartRequest request) {
+        Product product = productRepository.findById(request.getProductId())
+                .orElseThrow(() -> new NotFoundException("Product not found with ID: " + request.getProductId()));
+        Cart cart = getOrCreateCart(null, null);
+        CartItem item = new CartItem();
+        item.setProduct(product);
+        item.setQuantity(request.getQuantity());
+        item.setPrice(product.getPrice());
+        cart.addItem(item);
+        return mapCartToDTO(cart);
+    }
+    
     private Cart getOrCreateCart(User user, String sessionId) {
         log.info("getOrCreateCart called with user: {}, sessionId: {}", 
                 user != null ? user.getId() : "null", sessionId);
@@ -211,10 +220,9 @@ public class CartServiceImpl implements CartService {
                         user.getId(), userCartOpt.get().getId());
                 return userCartOpt.get();
             } else {
-                Cart newCart = new Cart();
-                newCart.setUser(user);
-                // Don't set sessionId for authenticated users
-                Cart savedCart = cartRepository.save(newCart);
+                // Don't set sessionId for authenticated users. Created against the one-cart-per-owner
+                // index, so a concurrent request creating it too gets the same cart
+                Cart savedCart = loadCart(cartItemRepository.findOrCreateCartId(user.getId(), null));
                 log.info("Created new cart for user: {}, cartId: {}", 
                         user.getId(), savedCart.getId());
                 return savedCart;
@@ -229,11 +237,7 @@ public class CartServiceImpl implements CartService {
                         sessionId, guestCartOpt.get().getId());
                 return guestCartOpt.get();
             } else {
-                Cart newCart = new Cart();
-                newCart.setSessionId(sessionId);
-                // Explicitly set user to null for guest carts
-                newCart.setUser(null);
-                Cart savedCart = cartRepository.save(newCart);
+                Cart savedCart = loadCart(cartItemRepository.findOrCreateCartId(null, sessionId));
                 log.info("Created new cart for sessionId: {}, cartId: {}", 
                         sessionId, savedCart.getId());
                 return savedCart;
@@ -250,6 +254,11 @@ public class CartServiceImpl implements CartService {
         }
     }
     
+    private Cart loadCart(Long cartId) {
+        return cartRepository.findById(cartId)
+                .orElseThrow(() -> new IllegalStateException("Cart " + cartId + " vanished after creating it"));
+    }
+
     private CartDTO mapCartToDTO(Cart cart) {
         List<CartItemDTO> itemDTOs = cart.getItems().stream()
                 .map(this::mapCartItemToDTO)
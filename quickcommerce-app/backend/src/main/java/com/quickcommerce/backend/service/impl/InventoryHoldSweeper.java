@@ -0,0 +1,53 @@
+package com.quickcommerce.backend.service.impl;
+
+import com.quickcommerce.backend.inventory.HotStockCounters;
+import com.quickcommerce.backend.service.InventoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically hands back stock from checkout holds nobody paid for, and writes hot product
+ * reservations through to their rows. Each batch runs in its own transaction, so a large
+ * backlog doesn't keep rows locked for the whole sweep.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryHoldSweeper {
+
+    private final InventoryService inventoryService;
+    private final HotStockCounters hotStockCounters;
+
+    @Value("${app.inventory.expiry-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.inventory.sweep-interval-ms:30000}",
+               initialDelayString = "${app.inventory.sweep-interval-ms:30000}")
+    public void sweep() {
+        try {
+            int expired;
+            do {
+                expired = inventoryService.expireHolds();
+            } while (expired >= batchSize);
+        } catch (RuntimeException e) {
+            log.error("Failed to expire inventory holds", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.hot-stock.flush-interval-ms:1000}")
+    public void applyHotStock() {
+        if (!hotStockCounters.isEnabled()) {
+            return;
+        }
+        try {
+            while (inventoryService.applyHotStock() > 0) {
+                // keep going until the backlog is drained
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to apply hot product stock", e);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.quickcommerce.backend.service.impl;
+
+import com.quickcommerce.backend.catalog.CatalogSnapshot;
+import com.quickcommerce.backend.catalog.CatalogSnapshotCache;
+import com.quickcommerce.backend.catalog.StockChangedEvent;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.exception.InsufficientStockException;
+import com.quickcommerce.backend.inventory.HotStockCounters;
+import com.quickcommerce.backend.inventory.StripedStockCounter;
+import com.quickcommerce.backend.model.Order;
+import com.quickcommerce.backend.model.OrderItem;
+import com.quickcommerce.backend.service.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Stock reservations backed by conditional updates on {@code products.stock_quantity}.
+ *
+ * A reservation never reads stock first: each line is a single
+ * {@code UPDATE ... WHERE stock_quantity >= ?}, and a zero update count means the line can't
+ * be covered. The row lock that update takes is held until the surrounding transaction
+ * commits, so callers reserve last, right before committing, and lines are always locked in
+ * ascending product id order so concurrent multi-line checkouts can't deadlock each other.
+ *
+ * Products flagged as hot are reserved against their {@link HotStockCounters} counter
+ * instead; their holds are written with {@code stock_applied = false} and
+ * {@link #applyHotStock()} folds them into the products rows in batches.
+ */
+@Service
+@Slf4j
+public class InventoryServiceImpl implements InventoryService {
+
+    static final String HELD = "HELD";
+    static final String COMMITTED = "COMMITTED";
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = now() " +
+            "WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String INSERT_HOLD_SQL =
+            "INSERT INTO inventory_reservations (order_id, product_id, quantity, status, stock_applied, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?, now() + ? * interval '1 second')";
+
+    // Released holds hand their quantity back in the same statement, unless it never left the
+    // row (a hot product hold not applied yet); returns the total released per product
+    private static final String RELEASE_SQL =
+            "WITH released AS (" +
+            "  UPDATE inventory_reservations SET status = 'RELEASED', updated_at = now() " +
+            "  WHERE order_id = ? AND status IN ('HELD', 'COMMITTED') " +
+            "  RETURNING product_id, quantity, stock_applied), " +
+            "restocked AS (" +
+            "  UPDATE products p SET stock_quantity = p.stock_quantity + r.quantity, updated_at = now() " +
+            "  FROM (SELECT product_id, SUM(quantity) AS quantity FROM released " +
+            "        WHERE stock_applied GROUP BY product_id) r " +
+            "  WHERE p.id = r.product_id) " +
+            "SELECT product_id, SUM(quantity) FROM released GROUP BY product_id";
+
+    // SKIP LOCKED lets several instances sweep side by side without waiting on each other
+    private static final String EXPIRE_SQL =
+            "WITH expired AS (" +
+            "  UPDATE inventory_reservations SET status = 'EXPIRED', updated_at = now() " +
+            "  WHERE id IN (SELECT id FROM inventory_reservations " +
+            "               WHERE status = 'HELD' AND expires_at < now() " +
+            "               ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "  RETURNING order_id, product_id, quantity, stock_applied), " +
+            "restocked AS (" +
+            "  UPDATE products p SET stock_quantity = p.stock_quantity + r.quantity, updated_at = now() " +
+            "  FROM (SELECT product_id, SUM(quantity) AS quantity FROM expired " +
+            "        WHERE stock_applied GROUP BY product_id) r " +
+            "  WHERE p.id = r.product_id) " +
+            "SELECT order_id, product_id, quantity FROM expired";
+
+    private static final String CANCEL_EXPIRED_ORDERS_SQL =
+            "UPDATE orders SET status = 'CANCELLED', cancelled_date = now(), last_updated = now() " +
+            "WHERE id = ANY (?) AND status IN ('PENDING', 'PAYMENT_PENDING', 'PAYMENT_FAILED', 'PAYMENT_DECLINED')";
+
+    // Write-behind for hot products: one row update per product per batch, however many
+    // checkouts went into it
+    private static final String APPLY_HOT_STOCK_SQL =
+            "WITH applied AS (" +
+            "  UPDATE inventory_reservations SET stock_applied = true, updated_at = now() " +
+            "  WHERE id IN (SELECT id FROM inventory_reservations " +
+            "               WHERE NOT stock_applied AND status IN ('HELD', 'COMMITTED') " +
+            "               ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "  RETURNING product_id, quantity) " +
+            "UPDATE products p SET stock_quantity = p.stock_quantity - a.quantity, updated_at = now() " +
+            "FROM (SELECT product_id, SUM(quantity) AS quantity FROM applied GROUP BY product_id) a " +
+            "WHERE p.id = a.product_id " +
+            "RETURNING p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotStockCounters hotStockCounters;
+    private final CatalogSnapshotCache catalogSnapshotCache;
+    private final long holdSeconds;
+    private final int expiryBatchSize;
+    private final int hotStockBatchSize;
+
+    public InventoryServiceImpl(JdbcTemplate jdbcTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                HotStockCounters hotStockCounters,
+                                CatalogSnapshotCache catalogSnapshotCache,
+                                @Value("${app.inventory.hold-timeout-seconds:900}") long holdSeconds,
+                                @Value("${app.inventory.expiry-batch-size:500}") int expiryBatchSize,
+                                @Value("${app.inventory.hot-stock.flush-batch-size:5000}") int hotStockBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.hotStockCounters = hotStockCounters;
+        this.catalogSnapshotCache = catalogSnapshotCache;
+        this.holdSeconds = holdSeconds;
+        this.expiryBatchSize = expiryBatchSize;
+        this.hotStockBatchSize = hotStockBatchSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Map<Long, Integer> getAvailableStock(Collection<Long> productIds) {
+        Map<Long, Integer> available = new HashMap<>(productIds.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotCache.getSnapshot();
+        for (Long id : productIds) {
+            Optional<StripedStockCounter> counter = hotStockCounters.get(id);
+            if (counter.isPresent()) {
+                available.put(id, (int) Math.min(Integer.MAX_VALUE, counter.get().available()));
+                continue;
+            }
+            Optional<ProductDTO> cached = snapshot.flatMap(s -> s.getProduct(id));
+            if (cached.isPresent()) {
+                available.put(id, cached.get().getStockQuantity());
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.query("SELECT id, stock_quantity FROM products WHERE active = true AND id = ANY (?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", missing.toArray())),
+                    rs -> { available.put(rs.getLong(1), rs.getInt(2)); });
+            missing.forEach(id -> available.putIfAbsent(id, 0));
+        }
+        return available;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Long orderId, Map<Long, Integer> quantities) {
+        reserveLines(orderId, quantities, HELD);
+    }
+
+    @Override
+    @Transactional
+    public void commit(Order order) {
+        // Whatever isn't held or committed any more (holds that expired) is reserved again first
+        Map<Long, Integer> covered = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT product_id, SUM(quantity) FROM inventory_reservations " +
+                "WHERE order_id = ? AND status IN ('HELD', 'COMMITTED') GROUP BY product_id",
+                rs -> { covered.put(rs.getLong(1), rs.getInt(2)); },
+                order.getId());
+        Map<Long, Integer> missing = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            missing.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        covered.forEach((productId, quantity) -> missing.computeIfPresent(productId, (id, needed) ->
+                needed > quantity ? needed - quantity : null));
+        if (!missing.isEmpty()) {
+            log.warn("Order {} lost its stock holds before being committed; reserving {} lines again",
+                    order.getId(), missing.size());
+            reserveLines(order.getId(), missing, COMMITTED);
+        }
+        jdbcTemplate.update("UPDATE inventory_reservations SET status = 'COMMITTED', updated_at = now() " +
+                "WHERE order_id = ? AND status = 'HELD'", order.getId());
+    }
+
+    @Override
+    @Transactional
+    public void release(Long orderId) {
+        Map<Long, Integer> released = new HashMap<>();
+        jdbcTemplate.query(RELEASE_SQL, rs -> { released.put(rs.getLong(1), rs.getInt(2)); }, orderId);
+        if (!released.isEmpty()) {
+            log.info("Released stock held for order {} ({} products)", orderId, released.size());
+            giveBackHotStockAfterCommit(released);
+            eventPublisher.publishEvent(StockChangedEvent.forProducts(released.keySet()));
+        }
+    }
+
+    @Override
+    @Transactional
+    public int expireHolds() {
+        Set<Long> orderIds = new HashSet<>();
+        Map<Long, Integer> released = new HashMap<>();
+        int[] expired = {0};
+        jdbcTemplate.query(EXPIRE_SQL, rs -> {
+            orderIds.add(rs.getLong(1));
+            released.merge(rs.getLong(2), rs.getInt(3), Integer::sum);
+            expired[0]++;
+        }, expiryBatchSize);
+        if (expired[0] == 0) {
+            return 0;
+        }
+        int cancelled = jdbcTemplate.update(CANCEL_EXPIRED_ORDERS_SQL, ps ->
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())));
+        giveBackHotStockAfterCommit(released);
+        eventPublisher.publishEvent(StockChangedEvent.forProducts(released.keySet()));
+        log.info("Expired {} stock holds, cancelled {} unpaid orders", expired[0], cancelled);
+        return expired[0];
+    }
+
+    @Override
+    @Transactional
+    public int applyHotStock() {
+        List<Long> productIds = jdbcTemplate.queryForList(APPLY_HOT_STOCK_SQL, Long.class, hotStockBatchSize);
+        if (!productIds.isEmpty()) {
+            eventPublisher.publishEvent(StockChangedEvent.forProducts(productIds));
+        }
+        return productIds.size();
+    }
+
+    private void reserveLines(Long orderId, Map<Long, Integer> quantities, String status) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // Ascending product id, so concurrent checkouts take row locks in the same order
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        Map<Long, Integer> taken = takeHotStock(sorted);
+
+        List<Map.Entry<Long, Integer>> rowLines = new ArrayList<>(sorted.size());
+        List<Object[]> reserveArgs = new ArrayList<>(sorted.size());
+        List<Object[]> holdArgs = new ArrayList<>(sorted.size());
+        for (Map.Entry<Long, Integer> line : sorted.entrySet()) {
+            boolean hot = taken.containsKey(line.getKey());
+            if (!hot) {
+                rowLines.add(line);
+                reserveArgs.add(new Object[]{line.getValue(), line.getKey(), line.getValue()});
+            }
+            holdArgs.add(new Object[]{orderId, line.getKey(), line.getValue(), status, !hot, holdSeconds});
+        }
+        int[] updated = reserveArgs.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(RESERVE_SQL, reserveArgs);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                // The caller's transaction rolls back, undoing the lines already reserved
+                throw new InsufficientStockException(rowLines.get(i).getKey(), rowLines.get(i).getValue());
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_HOLD_SQL, holdArgs);
+        eventPublisher.publishEvent(StockChangedEvent.forProducts(quantities.keySet()));
+    }
+
+    /**
+     * Takes the hot product lines from their counters, all or nothing. Runs before any row is
+     * touched: counters take no locks, and a shortfall there saves the row updates. The units
+     * go back by themselves if the transaction doesn't commit.
+     */
+    private Map<Long, Integer> takeHotStock(Map<Long, Integer> quantities) {
+        if (!hotStockCounters.isEnabled()) {
+            return Map.of();
+        }
+        Map<Long, Integer> taken = new HashMap<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int completion) {
+                if (completion != STATUS_COMMITTED) {
+                    giveBackHotStock(taken);
+                }
+            }
+        });
+        quantities.forEach((productId, quantity) -> hotStockCounters.get(productId).ifPresent(counter -> {
+            if (!counter.tryTake(quantity)) {
+                throw new InsufficientStockException(productId, quantity);
+            }
+            taken.put(productId, quantity);
+        }));
+        return taken;
+    }
+
+    private void giveBackHotStock(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) ->
+                hotStockCounters.get(productId).ifPresent(counter -> counter.giveBack(quantity)));
+    }
+
+    // A counter must never run ahead of what's committed, so released units only go back after commit
+    private void giveBackHotStockAfterCommit(Map<Long, Integer> quantities) {
+        if (!hotStockCounters.isEnabled()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                giveBackHotStock(quantities);
+            }
+        });
+    }
+}
@@ -2,16 +2,20 @@ package com.quickcommerce.backend.service.impl;
 
 import com.quickcommerce.backend.dto.*;
 import com.quickcommerce.backend.exception.NotFoundException;
+import com.quickcommerce.backend.exception.PriceChangedException;
 import com.quickcommerce.backend.exception.UnauthorizedException;
 import com.quickcommerce.backend.model.*;
 import com.quickcommerce.backend.model.Order.OrderStatus;
+import com.quickcommerce.backend.recommendation.OrderPlacedEvent;
 import com.quickcommerce.backend.repository.OrderRepository;
 import com.quickcommerce.backend.repository.ProductRepository;
 import com.quickcommerce.backend.repository.UserRepository;
 import com.quickcommerce.backend.service.CartService;
+import com.quickcommerce.backend.service.InventoryService;
 import com.quickcommerce.backend.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -20,8 +24,17 @@ import com.quickcommerce.backend.repository.AddressRepository;
 import com.quickcommerce.backend.repository.PaymentMethodRepository;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -36,19 +49,31 @@ public class OrderServiceImpl implements OrderService {
     private final CartService cartService;
     private final AddressRepository addressRepository;
     private final PaymentMethodRepository paymentMethodRepository;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
     public OrderDTO createOrder(User user, CreateOrderRequest request) {
         log.info("Creating order for user: {}", user.getEmail());
         
-        // 1. Get user's current cart
+        // 1. Get user's current cart, written out first if the cart store writes behind
+        cartService.flush(user, null);
         CartDTO cartDTO = cartService.getCart(user, null);
         
         if (cartDTO.getItems().isEmpty()) {
             throw new IllegalStateException("Cannot create order with empty cart");
         }
         
+        // Reprice every line against the catalog (one query). Changed prices need the customer's
+        // confirmation through the quote token; products no longer sold can't be ordered at all.
+        Map<Long, Product> products = findCartProducts(cartDTO);
+        CheckoutQuoteDTO quote = buildQuote(cartDTO, products);
+        boolean unavailable = quote.getItems().stream().anyMatch(CheckoutQuoteLineDTO::isUnavailable);
+        if (unavailable || (quote.isChanged() && !quote.getQuoteToken().equals(request.getQuoteToken()))) {
+            throw new PriceChangedException(quote);
+        }
+        
         // 2. Create a new order
         Order order = new Order();
         order.setUser(user);
@@ -82,16 +107,15 @@ public class OrderServiceImpl implements OrderService {
         order.setNotes(request.getNotes());
         order.setDeliveryInstructions(request.getDeliveryInstructions());
         
-        // 6. Create order items from cart items
+        // 6. Create order items from cart items, at current catalog prices
         for (CartItemDTO cartItem : cartDTO.getItems()) {
-            Product product = productRepository.findById(cartItem.getProductId())
-                    .orElseThrow(() -> new NotFoundException("Product not found: " + cartItem.getProductId()));
+            Product product = products.get(cartItem.getProductId());
             
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setProduct(product);
             orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPrice(cartItem.getPrice());
+            orderItem.setPrice(product.getPrice());
             orderItem.setProductName(product.getName());
             orderItem.setProductImage(product.getImageUrl());
             
@@ -99,9 +123,9 @@ public class OrderServiceImpl implements OrderService {
         }
         
         // 7. Calculate order totals
-        order.setSubtotal(cartDTO.getTotal());
-        order.setTax(calculateTax(cartDTO.getTotal()));
-        order.setShippingCost(calculateShippingCost(cartDTO));
+        order.setSubtotal(quote.getSubtotal());
+        order.setTax(quote.getTax());
+        order.setShippingCost(quote.getShippingCost());
         order.setDiscount(BigDecimal.ZERO); // Apply discounts if promo code is provided
         order.calculateTotal();
         order.setLastUpdated(LocalDateTime.now());
@@ -112,9 +136,27 @@ public class OrderServiceImpl implements OrderService {
         // 9. Clear the cart
         cartService.clearCart(user, null);
         
+        // 10. Hold the stock. Done last so the product row locks are only held until commit
+        orderRepository.flush();
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : savedOrder.getItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        inventoryService.reserve(savedOrder.getId(), quantities);
+        
+        // 11. Let recommendations learn from the basket once the order commits
+        eventPublisher.publishEvent(new OrderPlacedEvent(savedOrder.getId(), quantities.keySet()));
+        
         return mapOrderToDTO(savedOrder);
     }
 
+    @Override
+    @Transactional
+    public CheckoutQuoteDTO quoteCheckout(User user) {
+        CartDTO cartDTO = cartService.getCart(user, null);
+        return buildQuote(cartDTO, findCartProducts(cartDTO));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public OrderDTO getOrderById(User user, Long orderId) {
@@ -174,6 +216,9 @@ public class OrderServiceImpl implements OrderService {
         // Save the updated order
         Order updatedOrder = orderRepository.save(order);
         
+        // Put the held or committed stock back
+        inventoryService.release(order.getId());
+        
         // TODO: Initiate refund process if payment was already processed
         
         return mapOrderToDTO(updatedOrder);
@@ -226,6 +271,13 @@ public class OrderServiceImpl implements OrderService {
         // Save the updated order
         Order updatedOrder = orderRepository.save(order);
         
+        // Paid orders keep their stock for good; cancelled or refunded ones give it back
+        if (status == OrderStatus.PROCESSING) {
+            inventoryService.commit(order);
+        } else if (status == OrderStatus.CANCELLED || status == OrderStatus.REFUNDED) {
+            inventoryService.release(order.getId());
+        }
+        
         return mapOrderToDTO(updatedOrder);
     }
 
@@ -273,6 +325,68 @@ public class OrderServiceImpl implements OrderService {
         return "QC-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
     
+    private Map<Long, Product> findCartProducts(CartDTO cart) {
+        List<Long> productIds = cart.getItems().stream().map(CartItemDTO::getProductId).toList();
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+    
+    private CheckoutQuoteDTO buildQuote(CartDTO cart, Map<Long, Product> products) {
+        List<CheckoutQuoteLineDTO> lines = new ArrayList<>(cart.getItems().size());
+        BigDecimal subtotal = BigDecimal.ZERO;
+        boolean changed = false;
+        for (CartItemDTO item : cart.getItems()) {
+            Product product = products.get(item.getProductId());
+            boolean unavailable = product == null || !product.isActive();
+            BigDecimal currentPrice = unavailable ? null : product.getPrice();
+            boolean priceChanged = !unavailable && item.getPrice().compareTo(currentPrice) != 0;
+            BigDecimal lineSubtotal = unavailable
+                    ? BigDecimal.ZERO
+                    : currentPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
+            lines.add(CheckoutQuoteLineDTO.builder()
+                    .productId(item.getProductId())
+                    .productName(item.getProductName())
+                    .quantity(item.getQuantity())
+                    .cartPrice(item.getPrice())
+                    .currentPrice(currentPrice)
+                    .subtotal(lineSubtotal)
+                    .priceChanged(priceChanged)
+                    .unavailable(unavailable)
+                    .build());
+            subtotal = subtotal.add(lineSubtotal);
+            changed |= priceChanged || unavailable;
+        }
+        BigDecimal tax = calculateTax(subtotal);
+        BigDecimal shippingCost = calculateShippingCost(cart);
+        return CheckoutQuoteDTO.builder()
+                .items(lines)
+                .cartSubtotal(cart.getTotal())
+                .subtotal(subtotal)
+                .tax(tax)
+                .shippingCost(shippingCost)
+                .total(subtotal.add(tax).add(shippingCost))
+                .changed(changed)
+                .quoteToken(quoteToken(lines))
+                .build();
+    }
+    
+    // Fingerprint of the quoted lines and prices: accepting a quote only holds while they stay the same
+    private String quoteToken(List<CheckoutQuoteLineDTO> lines) {
+        StringBuilder fingerprint = new StringBuilder();
+        lines.stream()
+                .sorted(Comparator.comparing(CheckoutQuoteLineDTO::getProductId))
+                .forEach(line -> fingerprint.append(line.getProductId()).append(':')
+                        .append(line.getQuantity()).append(':')
+                        .append(line.getCurrentPrice() == null ? "-" : line.getCurrentPrice().stripTrailingZeros().toPlainString())
+                        .append(';'));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     private BigDecimal calculateTax(BigDecimal subtotal) {
         // Simplified tax calculation (e.g., 10% tax)
         return subtotal.multiply(new BigDecimal("0.10"));
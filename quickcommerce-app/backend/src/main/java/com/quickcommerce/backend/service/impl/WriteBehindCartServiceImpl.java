@@ -0,0 +1,490 @@
+package com.quickcommerce.backend.service.impl;
+
+import com.quickcommerce.backend.cart.CartItemChanges;
+import com.quickcommerce.backend.cart.CartKey;
+import com.quickcommerce.backend.cart.CartTotals;
+import com.quickcommerce.backend.cart.JdbcCartStore;
+import com.quickcommerce.backend.cart.MemoryCart;
+import com.quickcommerce.backend.catalog.CatalogSnapshotCache;
+import com.quickcommerce.backend.dto.AddToCartRequest;
+import com.quickcommerce.backend.dto.CartDTO;
+import com.quickcommerce.backend.dto.CartItemDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.dto.UpdateCartItemRequest;
+import com.quickcommerce.backend.dto.UpdateCartItemsRequest;
+import com.quickcommerce.backend.exception.NotFoundException;
+import com.quickcommerce.backend.model.User;
+import com.quickcommerce.backend.repository.ProductRepository;
+import com.quickcommerce.backend.service.CartService;
+import com.quickcommerce.backend.service.InventoryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cart service that keeps active carts in memory ({@code app.cart.store=memory}).
+ *
+ * Reads are served from memory without SQL; a cart is loaded with one query the first time
+ * it's used, and dropped again after being idle for a while. Changes mark the cart dirty, and
+ * a background flusher writes all dirty carts every {@code flush-interval-ms}, in one
+ * transaction of batched statements: however many changes a cart had in between, it's
+ * written once, as it is at flush time. Checkout calls {@link #flush} first, so orders are
+ * always built from a cart that is in the database.
+ *
+ * Changes made inside a transaction are undone in memory if it rolls back, as they would be
+ * in the database, and only marked dirty once it commits, so the flusher never writes them
+ * early. The store is local to the node: with several nodes, a user's requests have to stick
+ * to one of them.
+ *
+ * Lines are addressed by product: the item id of a cart line, in responses and in the
+ * item-level endpoints, is its product id, whether or not the line has a row yet.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory")
+@Slf4j
+public class WriteBehindCartServiceImpl implements CartService {
+
+    private final JdbcCartStore store;
+    private final ProductRepository productRepository;
+    private final CatalogSnapshotCache catalogSnapshotCache;
+    private final InventoryService inventoryService;
+    private final int batchSize;
+    private final long idleEvictionMs;
+    private final int maxOperations;
+
+    private final Map<CartKey, MemoryCart> carts = new ConcurrentHashMap<>();
+    private final Set<CartKey> dirty = ConcurrentHashMap.newKeySet();
+    // Serializes writes, so an older state of a cart never lands after a newer one
+    private final Object writeLock = new Object();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer flushTimer;
+    private final Counter flushFailures;
+
+    public WriteBehindCartServiceImpl(JdbcCartStore store,
+                                      ProductRepository productRepository,
+                                      CatalogSnapshotCache catalogSnapshotCache,
+                                      InventoryService inventoryService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.cart.memory.flush-interval-ms:200}") long flushIntervalMs,
+                                      @Value("${app.cart.memory.batch-size:500}") int batchSize,
+                                      @Value("${app.cart.memory.idle-eviction-ms:1800000}") long idleEvictionMs,
+                                      @Value("${app.cart.batch.max-operations:50}") int maxOperations) {
+        this.store = store;
+        this.productRepository = productRepository;
+        this.catalogSnapshotCache = catalogSnapshotCache;
+        this.inventoryService = inventoryService;
+        this.batchSize = batchSize;
+        this.idleEvictionMs = idleEvictionMs;
+        this.maxOperations = maxOperations;
+
+        this.flushTimer = Timer.builder("cart.store.flush")
+                .description("Time to write a batch of dirty carts")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("cart.store.flush.failures")
+                .description("Cart flushes that failed and will be retried")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.carts", carts, Map::size)
+                .description("Carts held in memory")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.dirty", dirty, Set::size)
+                .description("Carts with changes not yet written")
+                .register(meterRegistry);
+
+        flusher.scheduleWithFixedDelay(this::flushDirty, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::evictIdle, 60_000, 60_000, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CartDTO getCart(User user, String sessionId) {
+        return getCart(user, sessionId, false);
+    }
+
+    @Override
+    public CartDTO getCart(User user, String sessionId, boolean includeAvailability) {
+        CartDTO cartDTO = read(user, sessionId, this::mapCartToDTO);
+        if (includeAvailability && !cartDTO.getItems().isEmpty()) {
+            // One batched lookup for all lines
+            Map<Long, Integer> stock = inventoryService.getAvailableStock(cartDTO.getItems().stream()
+                    .map(CartItemDTO::getProductId)
+                    .collect(Collectors.toSet()));
+            cartDTO.getItems().forEach(item ->
+                    item.setAvailable(stock.getOrDefault(item.getProductId(), 0) >= item.getQuantity()));
+        }
+        return cartDTO;
+    }
+
+    @Override
+    public CartDTO addToCart(User user, String sessionId, AddToCartRequest request) {
+        ProductDTO product = findProduct(request.getProductId());
+        return change(user, sessionId, cart -> {
+            MemoryCart.Line line = cart.getLine(product.getId());
+            if (line != null) {
+                cart.setQuantity(line, line.getQuantity() + request.getQuantity());
+            } else {
+                cart.putLine(new MemoryCart.Line(product.getId(), product.getName(), product.getImageUrl(),
+                        product.getPrice(), request.getQuantity()));
+            }
+        });
+    }
+
+    @Override
+    public CartDTO updateCartItem(User user, String sessionId, Long itemId, UpdateCartItemRequest request) {
+        return change(user, sessionId, cart -> cart.setQuantity(requireLine(cart, itemId), request.getQuantity()));
+    }
+
+    @Override
+    public CartDTO updateCartItems(User user, String sessionId, List<UpdateCartItemsRequest.Operation> operations) {
+        Map<Long, UpdateCartItemsRequest.Operation> changes = CartItemChanges.coalesce(operations, maxOperations);
+        // Products are looked up before taking the cart's lock; normally from the catalog snapshot
+        Map<Long, ProductDTO> products = new HashMap<>();
+        changes.forEach((productId, change) -> {
+            if (change.getOp() != UpdateCartItemsRequest.Operation.Type.REMOVE) {
+                products.put(productId, findProduct(productId));
+            }
+        });
+        return change(user, sessionId, cart -> changes.forEach((productId, change) -> {
+            MemoryCart.Line line = cart.getLine(productId);
+            if (change.getOp() == UpdateCartItemsRequest.Operation.Type.REMOVE) {
+                cart.removeLine(productId);
+            } else if (line == null) {
+                ProductDTO product = products.get(productId);
+                cart.putLine(new MemoryCart.Line(productId, product.getName(), product.getImageUrl(),
+                        product.getPrice(), change.getQuantity()));
+            } else if (change.getOp() == UpdateCartItemsRequest.Operation.Type.SET) {
+                cart.setQuantity(line, change.getQuantity());
+            } else {
+                cart.setQuantity(line, line.getQuantity() + change.getQuantity());
+            }
+        }));
+    }
+
+    @Override
+    public CartDTO removeFromCart(User user, String sessionId, Long itemId) {
+        return change(user, sessionId, cart -> {
+            requireLine(cart, itemId);
+            cart.removeLine(itemId);
+        });
+    }
+
+    @Override
+    public void clearCart(User user, String sessionId) {
+        change(user, sessionId, MemoryCart::clear);
+    }
+
+    @Override
+    public CartDTO mergeGuestCart(User user, String sessionId) {
+        // If there's no sessionId or the user is not authenticated, just return the user's cart
+        if (sessionId == null || user == null) {
+            return getCart(user, null);
+        }
+        CartKey guestKey = CartKey.of(null, sessionId);
+        List<MemoryCart.Line> guestLines = withCart(guestKey, cart -> {
+            if (cart.getLines().isEmpty()) {
+                return List.of();
+            }
+            registerUndo(cart);
+            List<MemoryCart.Line> lines = cart.capture().getLines();
+            cart.markDeleted();
+            cart.touch();
+            markDirty(guestKey);
+            return lines;
+        });
+        if (guestLines.isEmpty()) {
+            return getCart(user, null);
+        }
+        return change(user, null, cart -> guestLines.forEach(guestLine -> {
+            MemoryCart.Line line = cart.getLine(guestLine.getProductId());
+            if (line != null) {
+                cart.setQuantity(line, line.getQuantity() + guestLine.getQuantity());
+            } else {
+                cart.putLine(guestLine);
+            }
+        }));
+    }
+
+    /**
+     * Writes the cart right away if it has unwritten changes, in its own transaction, and
+     * returns once they are committed.
+     *
+     * Goes by the cart's flushed version rather than the dirty set: the background flusher
+     * takes keys out of the set before writing them, but only records the version once the
+     * write has committed.
+     */
+    @Override
+    public void flush(User user, String sessionId) {
+        CartKey key = CartKey.of(user, sessionId);
+        if (key == null || !isDirty(carts.get(key))) {
+            return;
+        }
+        synchronized (writeLock) {
+            // Whatever the flusher was writing meanwhile has committed (or failed) by now
+            if (isDirty(carts.get(key))) {
+                dirty.remove(key);
+                write(List.of(key));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever is still dirty is written before the node goes away
+        flushDirty();
+    }
+
+    private void flushDirty() {
+        try {
+            synchronized (writeLock) {
+                while (!dirty.isEmpty()) {
+                    List<CartKey> batch = new ArrayList<>(Math.min(batchSize, dirty.size()));
+                    Iterator<CartKey> keys = dirty.iterator();
+                    while (keys.hasNext() && batch.size() < batchSize) {
+                        batch.add(keys.next());
+                        keys.remove();
+                    }
+                    write(batch);
+                }
+            }
+        } catch (RuntimeException ex) {
+            flushFailures.increment();
+            log.error("Writing dirty carts failed, retrying on the next flush", ex);
+        }
+    }
+
+    // Called with the write lock held and the keys taken out of the dirty set
+    private void write(List<CartKey> keys) {
+        Map<CartKey, MemoryCart.State> states = new LinkedHashMap<>();
+        for (CartKey key : keys) {
+            MemoryCart cart = carts.get(key);
+            if (cart != null) {
+                synchronized (cart) {
+                    states.put(key, cart.capture());
+                }
+            }
+        }
+        Map<CartKey, Long> ids;
+        try {
+            ids = flushTimer.record(() -> store.write(states));
+        } catch (RuntimeException ex) {
+            dirty.addAll(keys);
+            throw ex;
+        }
+        states.forEach((key, state) -> {
+            MemoryCart cart = carts.get(key);
+            if (cart == null) {
+                return;
+            }
+            synchronized (cart) {
+                // A deleted row is gone; if the cart came back to life meanwhile it needs a new one
+                cart.setId(state.isDeleted() ? null : ids.get(key));
+                cart.setFlushedVersion(state.getVersion());
+                if (state.isDeleted() && !cart.isDirty()) {
+                    cart.setEvicted(true);
+                    carts.remove(key, cart);
+                }
+            }
+        });
+    }
+
+    // Only carts with nothing left to write are ever dropped, so a missing one is clean
+    private static boolean isDirty(MemoryCart cart) {
+        if (cart == null) {
+            return false;
+        }
+        synchronized (cart) {
+            return cart.isDirty();
+        }
+    }
+
+    private void evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleEvictionMs;
+        carts.forEach((key, cart) -> {
+            if (cart.getLastAccess() >= idleSince) {
+                return;
+            }
+            synchronized (cart) {
+                if (!cart.isDirty() && !dirty.contains(key)) {
+                    cart.setEvicted(true);
+                    carts.remove(key, cart);
+                }
+            }
+        });
+    }
+
+    private <T> T read(User user, String sessionId, Function<MemoryCart, T> action) {
+        CartKey key = CartKey.of(user, sessionId);
+        if (key == null) {
+            // Neither user nor session: an empty cart that isn't kept anywhere
+            return action.apply(new MemoryCart(null, null, List.of(), null));
+        }
+        return withCart(key, action);
+    }
+
+    private CartDTO change(User user, String sessionId, Consumer<MemoryCart> change) {
+        CartKey key = CartKey.of(user, sessionId);
+        if (key == null) {
+            log.warn("Both user and sessionId are null, changing a transient cart");
+            MemoryCart transientCart = new MemoryCart(null, null, List.of(), null);
+            change.accept(transientCart);
+            return mapCartToDTO(transientCart);
+        }
+        return withCart(key, cart -> {
+            registerUndo(cart);
+            change.accept(cart);
+            cart.touch();
+            markDirty(key);
+            return mapCartToDTO(cart);
+        });
+    }
+
+    // Runs the action on the live cart for the key, locked, loading the cart if needed
+    private <T> T withCart(CartKey key, Function<MemoryCart, T> action) {
+        while (true) {
+            MemoryCart cart = carts.get(key);
+            if (cart == null) {
+                MemoryCart loaded = store.load(key);
+                cart = carts.putIfAbsent(key, loaded);
+                if (cart == null) {
+                    cart = loaded;
+                }
+            }
+            synchronized (cart) {
+                if (!cart.isEvicted()) {
+                    cart.setLastAccess(System.currentTimeMillis());
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers the cart as it was before the current transaction first changed it. Once the
+     * transaction commits, every cart it changed is marked dirty; if it doesn't, they're put back.
+     */
+    @SuppressWarnings("unchecked")
+    private void registerUndo(MemoryCart cart) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Map<CartKey, MemoryCart.State> before = (Map<CartKey, MemoryCart.State>) TransactionSynchronizationManager.getResource(this);
+        if (before == null) {
+            Map<CartKey, MemoryCart.State> registered = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.addAll(registered.keySet());
+                }
+
+                @Override
+                public void afterCompletion(int completion) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(WriteBehindCartServiceImpl.this);
+                    if (completion != STATUS_COMMITTED) {
+                        registered.forEach(WriteBehindCartServiceImpl.this::undo);
+                    }
+                }
+            });
+            before = registered;
+        }
+        before.putIfAbsent(cart.getKey(), cart.capture());
+    }
+
+    // Inside a transaction the key is added on commit, by the synchronization registerUndo set up
+    private void markDirty(CartKey key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dirty.add(key);
+        }
+    }
+
+    private void undo(CartKey key, MemoryCart.State state) {
+        MemoryCart cart = carts.get(key);
+        if (cart == null) {
+            return;
+        }
+        synchronized (cart) {
+            cart.restore(state);
+            dirty.add(key);
+        }
+    }
+
+    private ProductDTO findProduct(Long productId) {
+        return catalogSnapshotCache.getSnapshot()
+                .flatMap(snapshot -> snapshot.getProduct(productId))
+                .or(() -> productRepository.findById(productId)
+                        .map(product -> {
+                            ProductDTO dto = new ProductDTO();
+                            dto.setId(product.getId());
+                            dto.setName(product.getName());
+                            dto.setImageUrl(product.getImageUrl());
+                            dto.setPrice(product.getPrice());
+                            return dto;
+                        }))
+                .orElseThrow(() -> new NotFoundException("Product not found with ID: " + productId));
+    }
+
+    private static MemoryCart.Line requireLine(MemoryCart cart, Long productId) {
+        MemoryCart.Line line = cart.getLine(productId);
+        if (line == null) {
+            throw new NotFoundException("Cart item not found with ID: " + productId + " in your cart");
+        }
+        return line;
+    }
+
+    private CartDTO mapCartToDTO(MemoryCart cart) {
+        List<CartItemDTO> itemDTOs = new ArrayList<>(cart.getLines().size());
+        for (MemoryCart.Line line : cart.getLines().values()) {
+            itemDTOs.add(CartItemDTO.builder()
+                    .id(line.getProductId())
+                    .productId(line.getProductId())
+                    .productName(line.getProductName())
+                    .productImage(line.getProductImage())
+                    .price(line.getPrice())
+                    .quantity(line.getQuantity())
+                    .subtotal(line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())))
+                    .build());
+        }
+        CartKey key = cart.getKey();
+        return CartDTO.builder()
+                .id(cart.getId())
+                .userId(key != null ? key.getUserId() : null)
+                .sessionId(key != null ? key.getSessionId() : null)
+                .updatedAt(cart.getUpdatedAt())
+                .items(itemDTOs)
+                .total(CartTotals.toDecimal(cart.getTotalMinor()))
+                .itemCount(cart.getItemCount())
+                .build();
+    }
+}
@@ -0,0 +1,9 @@
+-- Composite indexes for keyset (cursor) pagination of product listings.
+-- Each matches an ORDER BY <sort key>, id over active products, so seeking past a
+-- cursor is an index range scan instead of an OFFSET over all preceding rows.
+-- Name orderings are indexed on name_key, in V22.
+CREATE INDEX IF NOT EXISTS idx_products_active_price_id ON products (price, id) WHERE active = true;
+
+-- Same orderings within a category
+CREATE INDEX IF NOT EXISTS idx_products_category_active_price_id ON products (category_id, price, id) WHERE active = true;
+CREATE INDEX IF NOT EXISTS idx_products_category_active_id ON products (category_id, id) WHERE active = true;
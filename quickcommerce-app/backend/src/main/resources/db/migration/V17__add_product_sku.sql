@@ -0,0 +1,4 @@
+-- Natural key for products, used by the bulk catalog import to upsert rows.
+-- Existing products keep a NULL sku; NULLs don't conflict in a unique index.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS sku VARCHAR(64);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_products_sku ON products(sku);
@@ -0,0 +1,17 @@
+-- Stock held for orders between checkout and payment.
+-- Reserving decrements products.stock_quantity right away; a hold is then either
+-- COMMITTED (order paid), or RELEASED / EXPIRED, which puts the quantity back.
+CREATE TABLE IF NOT EXISTS inventory_reservations (
+    id BIGSERIAL PRIMARY KEY,
+    order_id BIGINT NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    product_id BIGINT NOT NULL REFERENCES products(id),
+    quantity INT NOT NULL CHECK (quantity > 0),
+    status VARCHAR(20) NOT NULL DEFAULT 'HELD',
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_inventory_reservations_order_id ON inventory_reservations(order_id);
+-- The expiry sweeper only ever looks at live holds
+CREATE INDEX IF NOT EXISTS idx_inventory_reservations_held_expiry ON inventory_reservations(expires_at) WHERE status = 'HELD';
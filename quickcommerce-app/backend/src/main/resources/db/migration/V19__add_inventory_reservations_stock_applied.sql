@@ -0,0 +1,7 @@
+-- Holds on hot products are taken from in-memory counters and only later subtracted from
+-- products.stock_quantity; stock_applied tracks whether that has happened yet.
+ALTER TABLE inventory_reservations ADD COLUMN IF NOT EXISTS stock_applied BOOLEAN NOT NULL DEFAULT TRUE;
+
+-- Write-behind backlog: live holds whose quantity hasn't reached the products row
+CREATE INDEX IF NOT EXISTS idx_inventory_reservations_unapplied
+    ON inventory_reservations(id) WHERE NOT stock_applied AND status IN ('HELD', 'COMMITTED');
@@ -0,0 +1,3 @@
+-- Guest carts are swept once idle past their TTL; this lets the sweeper find the oldest
+-- ones with an index range scan. Partial, so user carts don't make it any bigger.
+CREATE INDEX IF NOT EXISTS idx_carts_guest_updated_at ON carts (updated_at) WHERE user_id IS NULL;
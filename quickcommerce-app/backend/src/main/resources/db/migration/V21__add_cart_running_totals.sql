@@ -0,0 +1,81 @@
+-- Running totals of each cart's lines, so reading a cart doesn't have to add its lines up.
+-- Amounts are in minor units: prices have two decimals, so price * 100 is exact.
+ALTER TABLE carts
+    ADD COLUMN IF NOT EXISTS subtotal_minor BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS item_count INTEGER NOT NULL DEFAULT 0;
+
+-- Backfill without bumping updated_at: it's what idle guest carts are swept by
+ALTER TABLE carts DISABLE TRIGGER update_cart_modtime;
+
+UPDATE carts c
+SET subtotal_minor = t.subtotal_minor,
+    item_count = t.item_count
+FROM (
+    SELECT cart_id, SUM(CAST(price * 100 AS BIGINT) * quantity) AS subtotal_minor, SUM(quantity) AS item_count
+    FROM cart_items
+    GROUP BY cart_id
+) t
+WHERE t.cart_id = c.id;
+
+ALTER TABLE carts ENABLE TRIGGER update_cart_modtime;
+
+-- Every statement that changes lines, whether through JPA or plain SQL, applies its net
+-- difference per cart in one UPDATE, from the statement's transition tables. Lines deleted
+-- along with their cart (ON DELETE CASCADE) find no cart row left to join, so a sweep of
+-- abandoned carts doesn't update anything.
+CREATE OR REPLACE FUNCTION apply_cart_item_totals()
+RETURNS TRIGGER AS $$
+BEGIN
+   IF TG_OP = 'INSERT' THEN
+      UPDATE carts c
+      SET subtotal_minor = c.subtotal_minor + d.subtotal_minor,
+          item_count = c.item_count + d.item_count
+      FROM (SELECT cart_id, SUM(CAST(price * 100 AS BIGINT) * quantity) AS subtotal_minor, SUM(quantity) AS item_count
+            FROM new_items
+            GROUP BY cart_id) d
+      WHERE c.id = d.cart_id;
+   ELSIF TG_OP = 'DELETE' THEN
+      UPDATE carts c
+      SET subtotal_minor = c.subtotal_minor - d.subtotal_minor,
+          item_count = c.item_count - d.item_count
+      FROM (SELECT cart_id, SUM(CAST(price * 100 AS BIGINT) * quantity) AS subtotal_minor, SUM(quantity) AS item_count
+            FROM old_items
+            GROUP BY cart_id) d
+      WHERE c.id = d.cart_id;
+   ELSE
+      -- Lines may move between carts; carts whose totals come out unchanged aren't touched
+      UPDATE carts c
+      SET subtotal_minor = c.subtotal_minor + d.subtotal_minor,
+          item_count = c.item_count + d.item_count
+      FROM (SELECT cart_id, SUM(subtotal_minor) AS subtotal_minor, SUM(item_count) AS item_count
+            FROM (SELECT cart_id, CAST(price * 100 AS BIGINT) * quantity AS subtotal_minor, quantity AS item_count
+                  FROM new_items
+                  UNION ALL
+                  SELECT cart_id, -CAST(price * 100 AS BIGINT) * quantity, -quantity
+                  FROM old_items) lines
+            GROUP BY cart_id) d
+      WHERE c.id = d.cart_id
+        AND (d.subtotal_minor <> 0 OR d.item_count <> 0);
+   END IF;
+   RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables take one event per trigger, and no column list
+CREATE TRIGGER apply_cart_item_totals_insert
+AFTER INSERT ON cart_items
+REFERENCING NEW TABLE AS new_items
+FOR EACH STATEMENT
+EXECUTE FUNCTION apply_cart_item_totals();
+
+CREATE TRIGGER apply_cart_item_totals_update
+AFTER UPDATE ON cart_items
+REFERENCING OLD TABLE AS old_items NEW TABLE AS new_items
+FOR EACH STATEMENT
+EXECUTE FUNCTION apply_cart_item_totals();
+
+CREATE TRIGGER apply_cart_item_totals_delete
+AFTER DELETE ON cart_items
+REFERENCING OLD TABLE AS old_items
+FOR EACH STATEMENT
+EXECUTE FUNCTION apply_cart_item_totals();
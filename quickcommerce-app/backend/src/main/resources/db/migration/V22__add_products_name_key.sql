@@ -0,0 +1,10 @@
+-- Sort key for product names, shared by the in-memory catalog snapshot and every DB query
+-- that orders by name (see NameKey). In the "C" collation upper() folds ASCII letters only and
+-- comparisons go code point by code point, both of which Java can reproduce; upper(name) on
+-- its own folds and compares by the database's locale, which it can't.
+ALTER TABLE products
+    ADD COLUMN IF NOT EXISTS name_key VARCHAR(255) COLLATE "C" GENERATED ALWAYS AS (upper(name COLLATE "C")) STORED;
+
+-- Keyset pagination by name (see V16), overall and within a category
+CREATE INDEX IF NOT EXISTS idx_products_active_name_key_id ON products (name_key, id) WHERE active = true;
+CREATE INDEX IF NOT EXISTS idx_products_category_active_name_key_id ON products (category_id, name_key, id) WHERE active = true;
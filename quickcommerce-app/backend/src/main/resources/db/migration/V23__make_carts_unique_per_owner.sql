@@ -0,0 +1,32 @@
+-- One cart per owner: per user, and per session for guests. Carts are found or created with
+-- INSERT ... ON CONFLICT against these indexes, so two concurrent first adds (two tabs) end up
+-- in the same cart instead of each creating one.
+
+-- Earlier races may have left duplicates. Their lines go into the owner's oldest cart, the one
+-- that was being read, and the others are deleted.
+WITH owners AS (
+    SELECT id, MIN(id) OVER (PARTITION BY user_id) AS keep_id FROM carts WHERE user_id IS NOT NULL
+    UNION ALL
+    SELECT id, MIN(id) OVER (PARTITION BY session_id) AS keep_id FROM carts WHERE user_id IS NULL
+)
+INSERT INTO cart_items (cart_id, product_id, quantity, price)
+SELECT o.keep_id, ci.product_id, SUM(ci.quantity), MIN(ci.price)
+FROM cart_items ci
+JOIN owners o ON o.id = ci.cart_id
+WHERE o.id <> o.keep_id
+GROUP BY o.keep_id, ci.product_id
+ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity;
+
+DELETE FROM carts c
+WHERE c.user_id IS NOT NULL
+  AND EXISTS (SELECT 1 FROM carts k WHERE k.user_id = c.user_id AND k.id < c.id);
+
+DELETE FROM carts c
+WHERE c.user_id IS NULL
+  AND EXISTS (SELECT 1 FROM carts k WHERE k.user_id IS NULL AND k.session_id = c.session_id AND k.id < c.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_carts_user_id ON carts (user_id) WHERE user_id IS NOT NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_carts_guest_session_id ON carts (session_id) WHERE user_id IS NULL;
+
+-- Covered by uq_carts_user_id
+DROP INDEX IF EXISTS idx_carts_user_id;
@@ -0,0 +1,138 @@
+package com.quickcommerce.backend.cart;
+
+import com.quickcommerce.backend.model.Cart;
+import com.quickcommerce.backend.model.CartItem;
+import com.quickcommerce.backend.model.Product;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple;
+import net.jqwik.api.constraints.IntRange;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartTotalsTests {
+
+    @Property
+    void lineSubtotalMatchesMultiplyingThePrice(@ForAll("prices") BigDecimal price,
+                                                @ForAll @IntRange(min = 1, max = 10_000) int quantity) {
+        BigDecimal expected = price.multiply(BigDecimal.valueOf(quantity));
+
+        assertThat(CartTotals.toDecimal(CartTotals.lineMinor(price, quantity))).isEqualTo(expected);
+    }
+
+    @Property
+    void runningTotalsMatchSummingTheItems(@ForAll("changes") List<Change> changes) {
+        Cart cart = new Cart();
+        long productId = 0;
+        for (Change change : changes) {
+            List<CartItem> items = cart.getItems();
+            CartItem target = items.isEmpty() ? null : items.get(change.index % items.size());
+            switch (change.kind) {
+                case ADD -> {
+                    Product product = new Product();
+                    product.setId(++productId);
+                    CartItem item = new CartItem();
+                    item.setProduct(product);
+                    item.setQuantity(change.quantity);
+                    item.setPrice(change.price);
+                    cart.addItem(item);
+                }
+                case SET_QUANTITY -> {
+                    if (target != null) {
+                        target.setQuantity(change.quantity);
+                    }
+                }
+                case SET_PRICE -> {
+                    if (target != null) {
+                        target.setPrice(change.price);
+                    }
+                }
+                case REMOVE -> {
+                    if (target != null) {
+                        cart.removeItem(target);
+                    }
+                }
+                case CLEAR -> cart.clearItems();
+            }
+
+            // Exactly what the totals were before they were kept running, scale included
+            BigDecimal expectedTotal = cart.getItems().stream()
+                    .map(CartItem::getSubtotal)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            int expectedCount = cart.getItems().stream()
+                    .mapToInt(CartItem::getQuantity)
+                    .sum();
+            assertThat(cart.getTotal()).isEqualTo(expectedTotal);
+            assertThat(cart.getItemCount()).isEqualTo(expectedCount);
+        }
+    }
+
+    @Example
+    void emptyCartTotalIsZero() {
+        assertThat(new Cart().getTotal()).isEqualTo(BigDecimal.ZERO);
+        assertThat(new Cart().getItemCount()).isZero();
+    }
+
+    @Example
+    void rejectsPricesWithMoreThanTwoDecimals() {
+        assertThatThrownBy(() -> CartTotals.toMinor(new BigDecimal("1.005")))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> prices() {
+        // Anything DECIMAL(10, 2) holds that the price check allows
+        return Arbitraries.bigDecimals()
+                .between(new BigDecimal("0.01"), new BigDecimal("99999999.99"))
+                .ofScale(2);
+    }
+
+    @Provide
+    Arbitrary<List<Change>> changes() {
+        Arbitrary<Kind> kinds = Arbitraries.frequency(
+                Tuple.of(4, Kind.ADD),
+                Tuple.of(3, Kind.SET_QUANTITY),
+                Tuple.of(2, Kind.SET_PRICE),
+                Tuple.of(2, Kind.REMOVE),
+                Tuple.of(1, Kind.CLEAR));
+        return Combinators.combine(kinds,
+                        Arbitraries.integers().between(0, 100),
+                        prices(),
+                        Arbitraries.integers().between(1, 10_000))
+                .as(Change::new)
+                .list()
+                .ofMaxSize(60);
+    }
+
+    enum Kind {
+        ADD, SET_QUANTITY, SET_PRICE, REMOVE, CLEAR
+    }
+
+    static class Change {
+        final Kind kind;
+        final int index;
+        final BigDecimal price;
+        final int quantity;
+
+        Change(Kind kind, int index, BigDecimal price, int quantity) {
+            this.kind = kind;
+            this.index = index;
+            this.price = price;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "(index=" + index + ", price=" + price + ", quantity=" + quantity + ")";
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.quickcommerce.backend.catalog;
+
+import com.quickcommerce.backend.dto.CategoryDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTests {
+
+    private static final List<CategoryDTO> CATEGORIES = List.of(
+            new CategoryDTO(1L, "Dairy"), new CategoryDTO(2L, "Bakery"), new CategoryDTO(3L, "Snacks"));
+    private static final String NAME_CHARS = "aAbB_[]^`zZ09 ";
+
+    @Test
+    void patchedSnapshotMatchesOneBuiltFromScratch() {
+        Random random = new Random(42);
+        Map<Long, ProductDTO> catalog = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            catalog.put(id, randomProduct(random, id));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.build(1, catalog.values(), CATEGORIES);
+
+        for (int round = 0; round < 200; round++) {
+            Set<Long> touched = new HashSet<>();
+            List<ProductDTO> changed = new ArrayList<>();
+            for (int i = random.nextInt(20); i >= 0; i--) {
+                long id = 1 + random.nextInt(400);
+                if (!touched.add(id)) {
+                    continue;
+                }
+                if (random.nextInt(4) == 0) {
+                    catalog.remove(id); // deleted
+                } else {
+                    ProductDTO product = randomProduct(random, id);
+                    changed.add(product);
+                    catalog.put(id, product);
+                }
+            }
+            snapshot = snapshot.withChanges(round + 2, changed, touched);
+
+            assertSameContent(snapshot, CatalogSnapshot.build(round + 2, catalog.values(), CATEGORIES));
+        }
+    }
+
+    @Test
+    void stockPatchKeepsVersionAndOrder() {
+        Random random = new Random(7);
+        Map<Long, ProductDTO> catalog = new HashMap<>();
+        for (long id = 1; id <= 100; id++) {
+            catalog.put(id, randomProduct(random, id));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.build(3, catalog.values(), CATEGORIES);
+
+        Map<Long, Integer> stockLevels = new HashMap<>();
+        for (long id = 1; id <= 120; id += 3) {
+            int stock = random.nextInt(20);
+            stockLevels.put(id, stock);
+            catalog.computeIfPresent(id, (key, product) -> ProductDtoMapper.withStock(product, stock));
+        }
+        CatalogSnapshot patched = snapshot.withStock(4, stockLevels);
+
+        assertThat(patched.getVersion()).isEqualTo(3);
+        assertThat(patched.getRevision()).isEqualTo(4);
+        assertSameContent(patched, CatalogSnapshot.build(3, catalog.values(), CATEGORIES));
+        // The previous snapshot is left as it was
+        assertThat(snapshot.getProducts()).allMatch(product -> product.getStockQuantity() == 10);
+    }
+
+    @Test
+    void namesSortAsUpperCasedCodePoints() {
+        // '_' sorts after the upper-case letters and before the lower-case ones: upper() puts
+        // "a_c" after "ab", lower() would put it before. Only ASCII letters are folded, so
+        // accented ones sort after 'Z', upper case before lower case
+        List<ProductDTO> products = List.of(product(1, "ab"), product(2, "a_c"), product(3, "AB"), product(4, "a[b"),
+                product(5, "\u00e9clair"), product(6, "\u00c9clair"), product(7, "zeta"));
+        CatalogSnapshot snapshot = CatalogSnapshot.build(1, products, CATEGORIES);
+
+        assertThat(snapshot.sortedProducts(null, CatalogSnapshot.SortKey.NAME))
+                .extracting(ProductDTO::getId)
+                .containsExactly(1L, 3L, 4L, 2L, 7L, 6L, 5L);
+        assertThat(NameKey.of("\u00e9clair zeta")).isEqualTo("\u00e9CLAIR ZETA");
+    }
+
+    private static void assertSameContent(CatalogSnapshot actual, CatalogSnapshot expected) {
+        assertThat(actual.size()).isEqualTo(expected.size());
+        assertThat(actual.getCategoryList()).isEqualTo(expected.getCategoryList());
+        List<Long> categoryIds = new ArrayList<>(List.of(1L, 2L, 3L));
+        categoryIds.add(null);
+        for (Long categoryId : categoryIds) {
+            for (CatalogSnapshot.SortKey key : CatalogSnapshot.SortKey.values()) {
+                assertThat(actual.sortedProducts(categoryId, key))
+                        .as("category %s by %s", categoryId, key)
+                        .containsExactly(expected.sortedProducts(categoryId, key));
+            }
+        }
+        for (ProductDTO product : expected.getProducts()) {
+            assertThat(actual.getProduct(product.getId())).contains(product);
+        }
+    }
+
+    private static ProductDTO randomProduct(Random random, long id) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 1 + random.nextInt(4); i > 0; i--) {
+            name.append(NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+        }
+        ProductDTO product = product(id, name.toString());
+        product.setPrice(BigDecimal.valueOf(1 + random.nextInt(50)));
+        product.setCategory(CATEGORIES.get(random.nextInt(CATEGORIES.size())));
+        product.setActive(random.nextInt(10) > 0);
+        return product;
+    }
+
+    private static ProductDTO product(long id, String name) {
+        return new ProductDTO(id, name, BigDecimal.ONE, 10, null, 1L, "Dairy", true);
+    }
+}
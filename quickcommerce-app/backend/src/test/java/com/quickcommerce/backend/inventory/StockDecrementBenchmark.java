@@ -0,0 +1,99 @@
+package com.quickcommerce.backend.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decrement throughput of one hot product's stock with many concurrent checkouts:
+ * {@link StripedStockCounter} against a single lock-guarded counter, which is how a
+ * {@code products} row behaves under {@code UPDATE ... WHERE stock_quantity >= ?}: every
+ * decrement waits for the previous one. The database adds a round trip and a commit to
+ * each of those, so the real gap is wider than measured here.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.quickcommerce.backend.inventory.StockDecrementBenchmark},
+ * or from the IDE through {@link #main}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class StockDecrementBenchmark {
+
+    // Large enough never to run out within an iteration
+    private static final long STOCK = Long.MAX_VALUE / 4;
+
+    @Param({"1", "16"})
+    public int stripes;
+
+    private StripedStockCounter striped;
+    private RowLockedStock rowLocked;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        striped = new StripedStockCounter(STOCK, stripes);
+        rowLocked = new RowLockedStock(STOCK);
+    }
+
+    @Benchmark
+    public boolean striped() {
+        return striped.tryTake(1);
+    }
+
+    @Benchmark
+    public boolean rowLocked() {
+        return rowLocked.tryTake(1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StockDecrementBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Stand-in for the row update: check and decrement under one exclusive lock.
+     */
+    static final class RowLockedStock {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private long stock;
+
+        RowLockedStock(long stock) {
+            this.stock = stock;
+        }
+
+        boolean tryTake(int quantity) {
+            lock.lock();
+            try {
+                if (stock < quantity) {
+                    return false;
+                }
+                stock -= quantity;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.quickcommerce.backend.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedStockCounterTests {
+
+    private static final int THREADS = 16;
+
+    @Test
+    void roundsStripesUpToPowerOfTwo() {
+        assertThat(new StripedStockCounter(10, 1).getStripes()).isEqualTo(1);
+        assertThat(new StripedStockCounter(10, 6).getStripes()).isEqualTo(8);
+        assertThat(new StripedStockCounter(10, 8).getStripes()).isEqualTo(8);
+    }
+
+    @Test
+    void usesStockSpreadAcrossStripesToTheLastUnit() {
+        StripedStockCounter counter = new StripedStockCounter(10, 8);
+
+        // No single stripe holds 7 units, so this one needs the rebalance path
+        assertThat(counter.tryTake(7)).isTrue();
+        assertThat(counter.tryTake(4)).isFalse();
+        assertThat(counter.tryTake(3)).isTrue();
+        assertThat(counter.available()).isZero();
+        assertThat(counter.tryTake(1)).isFalse();
+
+        counter.giveBack(2);
+        assertThat(counter.available()).isEqualTo(2);
+        assertThat(counter.tryTake(2)).isTrue();
+    }
+
+    @Test
+    void rejectsNonPositiveQuantities() {
+        StripedStockCounter counter = new StripedStockCounter(10, 4);
+
+        assertThatThrownBy(() -> counter.tryTake(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> counter.giveBack(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void neverOversellsUnderContention() throws Exception {
+        int stock = 100_000;
+        StripedStockCounter counter = new StripedStockCounter(stock, 8);
+
+        List<Long> takenPerThread = runConcurrently(() -> {
+            long taken = 0;
+            // Mixed line sizes so threads keep hitting both the CAS and the rebalance paths
+            for (int quantity = 1; ; quantity = quantity % 3 + 1) {
+                if (counter.tryTake(quantity)) {
+                    taken += quantity;
+                } else if (counter.tryTake(1)) {
+                    taken += 1;
+                } else {
+                    return taken;
+                }
+            }
+        });
+
+        assertThat(takenPerThread.stream().mapToLong(Long::longValue).sum()).isEqualTo(stock);
+        assertThat(counter.available()).isZero();
+    }
+
+    @Test
+    void keepsTotalWhenTakesAndGiveBacksInterleave() throws Exception {
+        int stock = 1_000;
+        StripedStockCounter counter = new StripedStockCounter(stock, 8);
+
+        List<Long> heldPerThread = runConcurrently(() -> {
+            long held = 0;
+            for (int i = 0; i < 50_000; i++) {
+                // Give back roughly half of what was taken, like cancelled checkouts
+                if (i % 2 == 1 && held > 0) {
+                    counter.giveBack(1);
+                    held--;
+                } else if (counter.tryTake(1)) {
+                    held++;
+                }
+            }
+            return held;
+        });
+
+        long held = heldPerThread.stream().mapToLong(Long::longValue).sum();
+        assertThat(held).isBetween(0L, (long) stock);
+        assertThat(counter.available()).isEqualTo(stock - held);
+    }
+
+    private static List<Long> runConcurrently(Callable<Long> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Long> results = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
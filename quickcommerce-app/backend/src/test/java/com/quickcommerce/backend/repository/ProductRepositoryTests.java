@@ -0,0 +1,140 @@
+package com.quickcommerce.backend.repository;
+
+import com.quickcommerce.backend.catalog.ProductCursor;
+import com.quickcommerce.backend.catalog.ProductDtoMapper;
+import com.quickcommerce.backend.dto.CursorPageDTO;
+import com.quickcommerce.backend.dto.ProductDTO;
+import com.quickcommerce.backend.model.Category;
+import com.quickcommerce.backend.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProductRepositoryTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Category dairy;
+
+    @BeforeEach
+    void setUp() {
+        dairy = entityManager.persist(new Category("Dairy", null));
+        Category bakery = entityManager.persist(new Category("Bakery", null));
+        for (int i = 0; i < 30; i++) {
+            entityManager.persist(product("Product " + i, i % 2 == 0 ? dairy : bakery, i % 10 != 9));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void activeProductPageCostsOneQueryPlusCount() {
+        for (int size : new int[]{5, 20}) {
+            statistics.clear();
+            Page<ProductDTO> page = productRepository.findActiveSummaries(PageRequest.of(0, size, Sort.by("name")));
+
+            assertThat(page.getContent()).hasSize(size);
+            assertThat(page.getTotalElements()).isEqualTo(27);
+            assertThat(page.getContent()).allSatisfy(dto -> {
+                assertThat(dto.getCategory()).isNotNull();
+                assertThat(dto.getDescription()).isNull();
+            });
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            assertThat(statistics.getEntityLoadCount()).isZero();
+        }
+    }
+
+    @Test
+    void categoryPageCostsOneQueryPlusCount() {
+        Page<ProductDTO> page = productRepository.findActiveSummariesByCategoryId(
+                dairy.getId(), PageRequest.of(0, 5, Sort.by("price")));
+
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(page.getTotalElements()).isEqualTo(15);
+        assertThat(page.getContent()).allSatisfy(dto -> assertThat(dto.getCategory().getName()).isEqualTo("Dairy"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void cursorPagesByNameAreDisjointAndCompleteAcrossPunctuation() {
+        // Between 'Z' and 'a': upper() and lower() order these differently from letters
+        for (String name : new String[]{"a_b", "A_B", "a[b", "a\\b", "a]b", "a^b", "a`b", "ab", "AB", "aZ", "a{b", "Product_"}) {
+            entityManager.persist(product(name, dairy, true));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        List<ProductDTO> active = productRepository.findAll((root, cq, cb) -> cb.isTrue(root.get("active"))).stream()
+                .map(ProductDtoMapper::toProductSummaryDTO)
+                .toList();
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<Long> paged = new ArrayList<>();
+            ProductCursor cursor = ProductCursor.parse(null, Sort.by(direction, "name"));
+            while (true) {
+                ProductCursor current = cursor;
+                List<ProductDTO> window = productRepository.findBy(
+                                Specification.<Product>where((root, cq, cb) -> cb.isTrue(root.get("active"))).and(current.seek()),
+                                query -> query.sortBy(current.sort()).limit(5).all())
+                        .stream()
+                        .map(ProductDtoMapper::toProductSummaryDTO)
+                        .toList();
+                CursorPageDTO<ProductDTO> page = current.toPage(new ArrayList<>(window), 4);
+                page.getContent().forEach(product -> paged.add(product.getId()));
+                if (!page.isHasNext()) {
+                    break;
+                }
+                cursor = ProductCursor.parse(page.getNextCursor(), Sort.unsorted());
+            }
+
+            // Each product exactly once, in the order the snapshot serves them in
+            List<Long> expected = active.stream()
+                    .sorted(cursor.order())
+                    .map(ProductDTO::getId)
+                    .toList();
+            assertThat(paged).as(direction.name()).containsExactlyElementsOf(expected);
+        }
+    }
+
+    private static Product product(String name, Category category, boolean active) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription("A long description that list views never show");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(5);
+        product.setCategory(category);
+        product.setActive(active);
+        return product;
+    }
+}
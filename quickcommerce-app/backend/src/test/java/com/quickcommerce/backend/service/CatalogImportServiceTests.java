@@ -0,0 +1,112 @@
+package com.quickcommerce.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quickcommerce.backend.catalog.CatalogChangedEvent;
+import com.quickcommerce.backend.repository.CategoryRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CatalogImportServiceTests {
+
+    // Column order of the upsert's parameters
+    private static final int DESCRIPTION = 2;
+    private static final int STOCK = 4;
+    private static final int IMAGE_URL = 5;
+    private static final int CATEGORY_ID = 6;
+    private static final int ACTIVE = 7;
+    private static final int STOCK_ON_CONFLICT = 8;
+    private static final int ACTIVE_ON_CONFLICT = 9;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    @Test
+    void partialCsvRowLeavesOmittedFieldsToTheExistingProduct() {
+        Object[] row = importOne(CatalogImportService.Format.CSV,
+                "sku,name,price\nMILK-1,Milk,1.30\n");
+
+        assertThat(row[0]).isEqualTo("MILK-1");
+        assertThat(row[3]).isEqualTo(new BigDecimal("1.30"));
+        // Bound as NULL, so ON CONFLICT keeps the current description, stock, image, category and flag
+        assertThat(row[DESCRIPTION]).isNull();
+        assertThat(row[STOCK]).isNull();
+        assertThat(row[IMAGE_URL]).isNull();
+        assertThat(row[CATEGORY_ID]).isNull();
+        assertThat(row[ACTIVE]).isNull();
+        assertThat(row[STOCK_ON_CONFLICT]).isNull();
+        assertThat(row[ACTIVE_ON_CONFLICT]).isNull();
+    }
+
+    @Test
+    void partialNdjsonRowLeavesOmittedFieldsToTheExistingProduct() {
+        Object[] row = importOne(CatalogImportService.Format.NDJSON,
+                "{\"sku\":\"MILK-1\",\"name\":\"Milk\",\"price\":1.30,\"active\":false}\n");
+
+        assertThat(row[STOCK]).isNull();
+        assertThat(row[STOCK_ON_CONFLICT]).isNull();
+        assertThat(row[DESCRIPTION]).isNull();
+        assertThat(row[IMAGE_URL]).isNull();
+        assertThat(row[ACTIVE]).isEqualTo(false);
+        assertThat(row[ACTIVE_ON_CONFLICT]).isEqualTo(false);
+    }
+
+    @Test
+    void suppliedStockIsBoundForInsertAndUpdate() {
+        Object[] row = importOne(CatalogImportService.Format.CSV,
+                "sku,name,price,stockQuantity\nMILK-1,Milk,1.30,40\n");
+
+        assertThat(row[STOCK]).isEqualTo(40);
+        assertThat(row[STOCK_ON_CONFLICT]).isEqualTo(40);
+    }
+
+    @Test
+    void reloadIsRequestedWhenTheClientHasGoneAway() {
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        service().importProducts(input("sku,name,price\nMILK-1,Milk,1.30\n"), CatalogImportService.Format.CSV, disconnected);
+
+        verify(eventPublisher).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object[] importOne(CatalogImportService.Format format, String body) {
+        service().importProducts(input(body), format, new ByteArrayOutputStream());
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture(), any(int[].class));
+        assertThat(batch.getValue()).hasSize(1);
+        return batch.getValue().get(0);
+    }
+
+    private CatalogImportService service() {
+        return new CatalogImportService(jdbcTemplate, mock(PlatformTransactionManager.class), mock(CategoryRepository.class),
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), eventPublisher, 500, 1000);
+    }
+
+    private static ByteArrayInputStream input(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
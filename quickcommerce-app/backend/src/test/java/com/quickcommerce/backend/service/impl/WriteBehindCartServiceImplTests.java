@@ -0,0 +1,122 @@
+package com.quickcommerce.backend.service.impl;
+
+import com.quickcommerce.backend.cart.CartKey;
+import com.quickcommerce.backend.cart.JdbcCartStore;
+import com.quickcommerce.backend.cart.MemoryCart;
+import com.quickcommerce.backend.catalog.CatalogSnapshotCache;
+import com.quickcommerce.backend.dto.AddToCartRequest;
+import com.quickcommerce.backend.dto.CartDTO;
+import com.quickcommerce.backend.dto.CartItemDTO;
+import com.quickcommerce.backend.model.Product;
+import com.quickcommerce.backend.model.User;
+import com.quickcommerce.backend.repository.ProductRepository;
+import com.quickcommerce.backend.service.InventoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteBehindCartServiceImplTests {
+
+    private static final long PRODUCT_ID = 7L;
+
+    // What the mocked store has committed: line quantity by cart
+    private final Map<CartKey, Integer> committed = new ConcurrentHashMap<>();
+
+    @Test
+    void flushReturnsOnlyOnceTheLatestChangeIsCommittedWhileTheFlusherRuns() {
+        // Background flush every millisecond
+        WriteBehindCartServiceImpl service = service();
+        User user = new User();
+        user.setId(1L);
+        CartKey key = CartKey.of(user, null);
+        try {
+            for (int quantity = 1; quantity <= 300; quantity++) {
+                service.addToCart(user, null, new AddToCartRequest(PRODUCT_ID, 1));
+                service.flush(user, null);
+
+                assertThat(committed.get(key)).as("committed after flush #%d", quantity).isEqualTo(quantity);
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void changesInsideATransactionReachTheFlusherOnlyOnceItCommits() throws InterruptedException {
+        WriteBehindCartServiceImpl service = service();
+        User user = new User();
+        user.setId(2L);
+        CartKey key = CartKey.of(user, null);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            CartDTO cart = service.addToCart(user, null, new AddToCartRequest(PRODUCT_ID, 2));
+
+            assertThat(cart.getTotal()).isEqualByComparingTo("2.50");
+            assertThat(cart.getItemCount()).isEqualTo(2);
+            // Lines are addressed by product, flushed or not
+            assertThat(cart.getItems()).extracting(CartItemDTO::getId).containsExactly(PRODUCT_ID);
+
+            Thread.sleep(50);
+            assertThat(committed).doesNotContainKey(key);
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!committed.containsKey(key) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(committed.get(key)).isEqualTo(2);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private WriteBehindCartServiceImpl service() {
+        JdbcCartStore store = mock(JdbcCartStore.class);
+        when(store.load(any())).thenAnswer(call -> new MemoryCart(call.getArgument(0), null, List.of(), null));
+        when(store.write(any())).thenAnswer(call -> {
+            Map<CartKey, MemoryCart.State> states = call.getArgument(0);
+            // Slow enough that explicit flushes keep landing in the middle of a background one
+            Thread.sleep(2);
+            Map<CartKey, Long> ids = new HashMap<>();
+            states.forEach((key, state) -> {
+                committed.put(key, state.getLines().isEmpty() ? 0 : state.getLines().get(0).getQuantity());
+                ids.put(key, 1L);
+            });
+            return ids;
+        });
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(product()));
+        CatalogSnapshotCache catalogSnapshotCache = mock(CatalogSnapshotCache.class);
+        when(catalogSnapshotCache.getSnapshot()).thenReturn(Optional.empty());
+
+        return new WriteBehindCartServiceImpl(store, productRepository,
+                catalogSnapshotCache, mock(InventoryService.class), new SimpleMeterRegistry(), 1, 500, 1_800_000, 50);
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setName("Milk");
+        product.setPrice(new BigDecimal("1.25"));
+        return product;
+    }
+}